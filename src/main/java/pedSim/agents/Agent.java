@@ -9,19 +9,18 @@ import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 
 import pedSim.cognitiveMap.CognitiveMap;
-import pedSim.cognitiveMap.CommunityCognitiveMap;
+import pedSim.cognitiveMap.EdgeFlags;
 import pedSim.engine.PedSimCity;
 import pedSim.parameters.TimePars;
 import pedSim.routeChoice.RoutePlanner;
 import pedSim.utilities.StringEnum;
 import pedSim.utilities.StringEnum.AgentStatus;
+import pedSim.utilities.StringEnum.EdgeFlag;
 import pedSim.utilities.StringEnum.Vulnerable;
 import sim.engine.SimState;
 import sim.engine.Steppable;
 import sim.engine.Stoppable;
-import sim.graph.Graph;
 import sim.graph.NodeGraph;
-import sim.graph.NodesLookup;
 import sim.routing.Route;
 import sim.util.geo.MasonGeometry;
 
@@ -51,23 +50,25 @@ public class Agent implements Steppable {
 	public Route route;
 	protected double timeAtDestination = Double.MAX_VALUE;
 	NodeGraph lastDestination;
-	Random random = new Random();
+	final Random random;
 	protected AgentMovement agentMovement;
 	double metersWalkedTot;
 	private double distanceNextDestination = 0.0;
 	public double metersWalkedDay = 0.0;
 
 	public StringEnum.Vulnerable vulnerable;
-	private Graph agentNetwork;
 
 	/**
 	 * Constructor Function. Creates a new agent with the specified agent properties.
 	 *
-	 * @param state the PedSimCity simulation state.
+	 * @param state   the PedSimCity simulation state.
+	 * @param agentID the identifier of the agent, also the stream of its random number generator.
 	 */
-	public Agent(PedSimCity state) {
+	public Agent(PedSimCity state, int agentID) {
 
 		this.state = state;
+		this.agentID = agentID;
+		this.random = state.newRandom(agentID);
 		cognitiveMap = new CognitiveMap(this);
 		initialiseAgentProperties();
 		status = AgentStatus.WAITING;
@@ -75,7 +76,15 @@ public class Agent implements Steppable {
 		currentLocation = new MasonGeometry(fact.createPoint(new Coordinate(10, 10)));
 		currentLocation.isMovable = true;
 		updateAgentPosition(cognitiveMap.getHomeNode().getCoordinate());
-		this.agentNetwork = CommunityCognitiveMap.getNetwork();
+	}
+
+	/**
+	 * Returns the random number generator of the agent, derived from the job's one.
+	 *
+	 * @return The random number generator.
+	 */
+	public Random getRandom() {
+		return random;
 	}
 
 	/**
@@ -180,36 +189,34 @@ public class Agent implements Steppable {
 	}
 
 	/**
-	 * Randomly selects a destination node within a specified distance range.
+	 * Randomly selects a destination node within a specified distance range. Candidates are drawn from the distance
+	 * profile of the origin node, so widening the range does not require scanning the network again.
 	 */
 	private void randomDestination() {
 
 		// Initialise limits for distance calculation
 		double lowerLimit = distanceNextDestination * 0.90;
 		double upperLimit = distanceNextDestination * 1.10;
-
-		// Get the network graph from the cognitive map
+		DistanceProfile profile = DistanceProfile.of(originNode);
 
 		// Loop until a valid destination is found
 		while (destinationNode == null) {
 
-			// Get candidate nodes between the current distance range
-			List<NodeGraph> destinationCandidates = NodesLookup.getNodesBetweenDistanceInterval(agentNetwork,
-					originNode, lowerLimit, upperLimit);
+			// Select a random destination node between the current distance range
+			if (profile.radius < upperLimit)
+				profile = DistanceProfile.of(originNode, upperLimit);
+			destinationNode = profile.randomNodeBetween(lowerLimit, upperLimit, random);
 
-			if (destinationCandidates.isEmpty()) {
-				// Skip this iteration and adjust the limits if no candidates found
+			if (destinationNode == null) {
+				// Adjust the limits if no candidates found
 				lowerLimit *= 0.90;
 				upperLimit *= 1.10;
 				continue; // Continue with the next loop iteration
 			}
 
-			// Select a random destination node from the list of candidates
-			destinationNode = NodesLookup.randomNodeFromList(destinationCandidates);
-
 			// If it's dark, filter out destination nodes that lie in parks or along rivers
 			if (state.isDark && destinationNode.getEdges().stream()
-					.anyMatch(CommunityCognitiveMap.getEdgesWithinParksOrAlongWater()::contains)) {
+					.anyMatch(edge -> EdgeFlags.has(edge, EdgeFlag.PARK_OR_WATER))) {
 				destinationNode = null; // Set destination to null and try again
 
 				// Adjust the distance range for the next iteration
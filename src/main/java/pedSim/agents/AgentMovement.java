@@ -3,25 +3,24 @@ package pedSim.agents;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.stream.Collectors;
 
-import org.javatuples.Pair;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.linearref.LengthIndexedLine;
 import org.locationtech.jts.planargraph.DirectedEdge;
 
 import pedSim.cognitiveMap.CommunityCognitiveMap;
+import pedSim.cognitiveMap.EdgeFlags;
+import pedSim.dijkstra.AstarRoadDistance;
 import pedSim.engine.PedSimCity;
 import pedSim.parameters.Pars;
+import pedSim.utilities.StringEnum.EdgeFlag;
+import pedSim.utilities.StringEnum.RouteCacheProfile;
 import sim.graph.EdgeGraph;
-import sim.graph.Graph;
 import sim.graph.GraphUtils;
 import sim.graph.NodeGraph;
-import sim.routing.Astar;
 import sim.routing.Route;
 
 /**
@@ -53,17 +52,16 @@ public class AgentMovement {
 	Set<EdgeGraph> edgesToAvoid;
 
 	PedSimCity state;
-	Random random = new Random();
+	Random random;
 
 	private NodeGraph currentNode;
-	private Graph network;
 
 	private boolean avoidParksWater;
 
 	public AgentMovement(Agent agent) {
 		this.agent = agent;
 		this.state = agent.getState();
-		this.network = CommunityCognitiveMap.getNetwork();
+		this.random = agent.random;
 	}
 
 	/**
@@ -102,12 +100,8 @@ public class AgentMovement {
 
 		updateCounts();
 
-		if (PedSimCity.indexedEdgeCache.containsKey(currentDirectedEdge))
-			indexedSegment = PedSimCity.indexedEdgeCache.get(currentDirectedEdge);
-		else {
-			addIndexedSegment(currentEdge);
-			indexedSegment = PedSimCity.indexedEdgeCache.get(currentDirectedEdge);
-		}
+		indexedSegment = PedSimCity.indexedEdgeCache.computeIfAbsent(currentDirectedEdge,
+				edge -> indexSegment(currentEdge));
 
 		currentIndex = indexedSegment.getStartIndex();
 		endIndex = indexedSegment.getEndIndex();
@@ -147,7 +141,7 @@ public class AgentMovement {
 
 		// update the counter for where the index on the directedEdgesSequence is
 		indexOnSequence += 1;
-		currentEdge.decrementAgentCount(); // Leave current edge
+		state.edgeOccupancy.leave(currentEdge); // Leave current edge
 
 		// check to make sure the Agent has not reached the end of the
 		// directedEdgesSequence already
@@ -202,21 +196,32 @@ public class AgentMovement {
 	 */
 	private void computeAlternativeRoute() {
 		NodeGraph currentNode = (NodeGraph) edgesWalkedSoFar.get(edgesWalkedSoFar.size() - 1).getToNode();
-		Pair<NodeGraph, NodeGraph> routeKey = Pair.with(currentNode, agent.destinationNode);
-		Map<Pair<NodeGraph, NodeGraph>, List<DirectedEdge>> cache = (agent.isVulnerable() || avoidParksWater)
-				? PedSimCity.altRoutesVulnerable
-				: PedSimCity.altRoutesNonVulnerable;
-
-		// Check if a cached route already exists
-		if (cache.containsKey(routeKey)) {
-			resetPath(new ArrayList<>(cache.get(routeKey)));
+		RouteCacheProfile profile = (agent.isVulnerable() || avoidParksWater)
+				? RouteCacheProfile.ALTERNATIVE_VULNERABLE
+				: RouteCacheProfile.ALTERNATIVE_NON_VULNERABLE;
+
+		// vulnerable agents' alternative routes depend on the edges they know, so they are only shared by agents
+		// knowing the same edges; only the alternative routes of the other agents are persisted
+		int fingerprint = agent.isVulnerable() ? agent.getCognitiveMap().getKnownEdgesFingerprint() : 0;
+		boolean persisted = profile == RouteCacheProfile.ALTERNATIVE_NON_VULNERABLE && PedSimCity.routeStore != null;
+
+		// Check if a cached route already exists, in memory or in the route store
+		List<DirectedEdge> cachedSequence = PedSimCity.routeCache.get(profile, currentNode, agent.destinationNode,
+				fingerprint);
+		if (cachedSequence == null && persisted) {
+			cachedSequence = PedSimCity.routeStore.get(profile, currentNode, agent.destinationNode);
+			if (cachedSequence != null)
+				PedSimCity.routeCache.put(profile, currentNode, agent.destinationNode, cachedSequence);
+		}
+		if (cachedSequence != null) {
+			resetPath(cachedSequence);
 			originalRoute = false;
 			return;
 		}
 
 		setEdgesToAvoid();
-		Astar aStar = new Astar();
-		Route alternativeRoute = aStar.astarRoute(currentNode, agent.destinationNode, network, edgesToAvoid);
+		AstarRoadDistance aStar = new AstarRoadDistance();
+		Route alternativeRoute = aStar.astarRoute(currentNode, agent.destinationNode, edgesToAvoid);
 
 		int iteration = 0;
 		while (alternativeRoute == null) {
@@ -238,13 +243,16 @@ public class AgentMovement {
 				edgesToAvoid.clear();
 			}
 			}
-			alternativeRoute = aStar.astarRoute(currentNode, agent.destinationNode, CommunityCognitiveMap.getNetwork(),
-					edgesToAvoid);
+			alternativeRoute = aStar.astarRoute(currentNode, agent.destinationNode, edgesToAvoid);
 			iteration++;
 		}
 
 		// Cache and apply the new route
-		cache.put(routeKey, new ArrayList<>(alternativeRoute.directedEdgesSequence));
+		PedSimCity.routeCache.put(profile, currentNode, agent.destinationNode, fingerprint,
+				alternativeRoute.directedEdgesSequence);
+		if (persisted)
+			PedSimCity.routeStore.put(profile, currentNode, agent.destinationNode,
+					alternativeRoute.directedEdgesSequence);
 		resetPath(alternativeRoute.directedEdgesSequence);
 		originalRoute = false;
 	}
@@ -282,11 +290,12 @@ public class AgentMovement {
 	}
 
 	/**
-	 * Adds an indexed segment to the indexed edge cache.
+	 * Indexes the line of an edge, oriented from the end the agent is closest to, for the indexed edge cache.
 	 *
-	 * @param edge The edge to add to the indexed edge cache.
+	 * @param edge The edge to index.
+	 * @return The indexed line.
 	 */
-	private void addIndexedSegment(EdgeGraph edge) {
+	private LengthIndexedLine indexSegment(EdgeGraph edge) {
 
 		LineString line = edge.getLine();
 		double distanceToStart = line.getStartPoint().distance(agent.getLocation().geometry);
@@ -295,8 +304,7 @@ public class AgentMovement {
 		if (distanceToEnd < distanceToStart)
 			line = line.reverse();
 
-		final LineString finalLine = line;
-		PedSimCity.indexedEdgeCache.put(currentDirectedEdge, new LengthIndexedLine(finalLine));
+		return new LengthIndexedLine(line);
 	}
 
 	/**
@@ -305,7 +313,7 @@ public class AgentMovement {
 	private void checkLightLevel() {
 
 		// edge is lit but night
-		if (CommunityCognitiveMap.getLitEdges().contains(currentEdge))
+		if (EdgeFlags.has(currentEdge, EdgeFlag.LIT))
 			whenLit(currentEdge);
 		else
 			whenNonLit(currentEdge);
@@ -449,34 +457,9 @@ public class AgentMovement {
 	 * @return true if the edge is overcrowded, false otherwise.
 	 */
 	private boolean isEdgeCrowded(EdgeGraph edge) {
-		double volumePercentile = calculateVolumesPercentile(20);
-		return edge.getAgentCount() >= volumePercentile;
-	}
-
-	/**
-	 * Calculates the volume percentile for a given percentile.
-	 *
-	 * @param percentile The percentile to calculate.
-	 * @return The volume at the given percentile.
-	 */
-	private double calculateVolumesPercentile(int percentile) {
-		// Collect volumes from edges (Set to List)
-		List<Integer> volumes = PedSimCity.edges.stream().map(EdgeGraph::getAgentCount) // Map each edge to its
-																						// agentCount
-				.filter(agentCount -> agentCount > 0) // Only keep agent counts greater than 0
-				.sorted() // Sort the agent counts
-				.collect(Collectors.toList()); // Collect to a List
-
-		// Calculate the index for the percentile
-		int index = (int) Math.ceil(percentile / 100.0 * volumes.size()) - 1;
-		index = Math.max(0, index); // Ensure the index is within bounds
-
-		// Return the value at the calculated index
-
-		if (!volumes.isEmpty())
-			return volumes.get(index);
-		else
-			return Double.MAX_VALUE;
+		// volume at the 20th percentile of the edges walked by at least one agent
+		double volumePercentile = state.edgeOccupancy.percentile(20);
+		return state.edgeOccupancy.getAgentCount(edge) >= volumePercentile;
 	}
 
 	/**
@@ -486,7 +469,7 @@ public class AgentMovement {
 	 * @return true if the edge is primary (or secondary, tertiary, if included), false otherwise.
 	 */
 	private boolean isEdgeMainRoad(EdgeGraph edge) {
-		return CommunityCognitiveMap.getCommunityKnownEdges().contains(edge);
+		return EdgeFlags.has(edge, EdgeFlag.COMMUNITY_KNOWN);
 	}
 
 	/**
@@ -518,7 +501,7 @@ public class AgentMovement {
 	 * @return true if the edge is next to a park or water, false otherwise.
 	 */
 	private boolean isEdgeNextToParkOrWater(EdgeGraph edge) {
-		return CommunityCognitiveMap.getEdgesWithinParksOrAlongWater().contains(edge);
+		return EdgeFlags.has(edge, EdgeFlag.PARK_OR_WATER);
 	}
 
 	/**
@@ -526,7 +509,7 @@ public class AgentMovement {
 	 */
 	private void updateCounts() {
 		edgesWalkedSoFar.add(currentDirectedEdge);
-		currentEdge.incrementAgentCount();
+		state.edgeOccupancy.enter(currentEdge);
 		agent.metersWalkedTot += currentEdge.getLength();
 		agent.metersWalkedDay += currentEdge.getLength();
 	}
@@ -536,7 +519,7 @@ public class AgentMovement {
 	 */
 	public void updateData() {
 		agent.route.resetRoute(new ArrayList<>(edgesWalkedSoFar));
-		state.flowHandler.updateFlowsData(agent, agent.route, state.isDark);
+		state.flowHandler.updateFlowsData(agent, agent.route, state.isDark, !originalRoute);
 	}
 
 	/**
@@ -1,7 +1,5 @@
 package pedSim.agents;
 
-import java.util.Random;
-
 /**
  * `EmpiricalAgentProperties` is a subclass of `AgentProperties` that represents the properties of an agent in a
  * pedestrian simulation with empirical-based parameters. It extends the base `AgentProperties` class to incorporate
@@ -14,7 +12,6 @@ public class AgentProperties {
 	// for general routing
 	public boolean onlyMinimising = true;
 	public boolean minimisingDistance = true;
-	final Random random = new Random();
 
 	/**
 	 * Sets the route choice for the agent and updates related properties accordingly.
@@ -0,0 +1,150 @@
+package pedSim.agents;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import pedSim.dijkstra.CompactGraph;
+import pedSim.engine.PedSimCity;
+import pedSim.parameters.RouteChoicePars;
+import sim.graph.NodeGraph;
+
+/**
+ * The Euclidean distance profile of an origin node: the nodes of the network within a given radius from the origin,
+ * sorted by their distance from it and stored in primitive arrays. Selecting the nodes whose distance from the origin
+ * falls in an interval then only requires two binary searches.
+ *
+ * Profiles cover 1.5 times {@code RouteChoicePars.maxTripDistance} and are cached by origin node and shared by all the
+ * agents, as the agents' trips start from their home nodes, which never change. The cache holds at most
+ * {@code RouteChoicePars.maxDistanceProfiles} profiles, the least recently used ones being evicted beyond it.
+ */
+public class DistanceProfile {
+
+	private static final Map<Integer, DistanceProfile> profiles = Collections
+			.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Integer, DistanceProfile> eldest) {
+					return size() > RouteChoicePars.maxDistanceProfiles;
+				}
+			});
+
+	private final CompactGraph graph;
+
+	/** The radius covered by the profile. */
+	public final double radius;
+
+	// node indexes and distances, by increasing distance from the origin
+	private final int[] nodes;
+	private final float[] distances;
+
+	/**
+	 * Sweeps the graph and collects, sorted by distance, the nodes within the radius from the origin.
+	 *
+	 * @param graph  The compact graph.
+	 * @param origin The origin node index.
+	 * @param radius The radius.
+	 */
+	private DistanceProfile(CompactGraph graph, int origin, double radius) {
+
+		this.graph = graph;
+		this.radius = radius;
+
+		// distance (non-negative float bits, which sort as ints) in the high half, node index in the low half
+		long[] entries = new long[graph.nodeCount];
+		int size = 0;
+		for (int node = 0; node < graph.nodeCount; node++) {
+			double distance = graph.euclideanDistance(origin, node);
+			if (node != origin && distance <= radius)
+				entries[size++] = ((long) Float.floatToIntBits((float) distance) << 32) | node;
+		}
+		Arrays.sort(entries, 0, size);
+
+		nodes = new int[size];
+		distances = new float[size];
+		for (int i = 0; i < size; i++) {
+			nodes[i] = (int) entries[i];
+			distances[i] = Float.intBitsToFloat((int) (entries[i] >>> 32));
+		}
+	}
+
+	/**
+	 * Returns the cached distance profile of the given origin node, building it if needed. Profiles are built outside
+	 * the cache lock, so that agents of different origins do not wait for each other; if two agents build the same
+	 * profile at once, the first one cached is kept.
+	 *
+	 * @param originNode The origin node.
+	 * @return The distance profile, with a radius of 1.5 times {@code RouteChoicePars.maxTripDistance}.
+	 */
+	public static DistanceProfile of(NodeGraph originNode) {
+		CompactGraph graph = PedSimCity.compactNetwork;
+		int origin = graph.nodeIndex(originNode);
+		DistanceProfile profile = profiles.get(origin);
+		if (profile != null)
+			return profile;
+		profile = new DistanceProfile(graph, origin, RouteChoicePars.maxTripDistance * 1.5);
+		DistanceProfile cached = profiles.putIfAbsent(origin, profile);
+		return cached == null ? profile : cached;
+	}
+
+	/**
+	 * Returns a distance profile of the given origin node covering at least the given radius: the cached one, if it is
+	 * wide enough, or otherwise a profile with twice the radius, which is not cached.
+	 *
+	 * @param originNode The origin node.
+	 * @param radius     The minimum radius the profile should cover.
+	 * @return The distance profile.
+	 */
+	public static DistanceProfile of(NodeGraph originNode, double radius) {
+		DistanceProfile profile = of(originNode);
+		if (profile.radius >= radius)
+			return profile;
+		CompactGraph graph = PedSimCity.compactNetwork;
+		return new DistanceProfile(graph, graph.nodeIndex(originNode), radius * 2);
+	}
+
+	/**
+	 * Empties the cache, when the compact graph is rebuilt.
+	 */
+	public static void clear() {
+		profiles.clear();
+	}
+
+	/**
+	 * Returns the position, in the profile, of the first node whose distance is not lower than the given one.
+	 *
+	 * @param distance The distance.
+	 * @return The position of the node, or the size of the profile if all nodes are closer.
+	 */
+	private int firstNotCloserThan(double distance) {
+		int low = 0;
+		int high = distances.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (distances[middle] < distance)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Picks a random node among the ones whose distance from the origin is within the given interval.
+	 *
+	 * @param lowerLimit The minimum distance.
+	 * @param upperLimit The maximum distance; it should not exceed the radius of the profile.
+	 * @param random     The random number generator.
+	 * @return A node in the interval, or null if there is none.
+	 */
+	public NodeGraph randomNodeBetween(double lowerLimit, double upperLimit, Random random) {
+		int first = firstNotCloserThan(lowerLimit);
+		int count = firstNotCloserThan(Math.nextUp(upperLimit)) - first;
+		if (count <= 0)
+			return null;
+		return graph.nodes[nodes[first + random.nextInt(count)]];
+	}
+}
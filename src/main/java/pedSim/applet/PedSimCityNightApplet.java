@@ -12,12 +12,21 @@ import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
-import java.util.stream.IntStream;
 
 import pedSim.engine.Engine;
+import pedSim.engine.EnsembleController;
 import pedSim.engine.Environment;
+import pedSim.engine.Exporter;
+import pedSim.engine.FlowHandler;
 import pedSim.engine.Import;
+import pedSim.engine.PedSimCity;
 import pedSim.parameters.Pars;
 import pedSim.parameters.TimePars;
 import pedSim.utilities.LoggerUtil;
@@ -189,17 +198,40 @@ public class PedSimCityNightApplet extends Frame implements ItemListener {
 		Environment.prepare();
 		logger.info("Environment Prepared. About to Start Simulation");
 
-		// run in parallel
-		IntStream.range(0, Pars.jobs).parallel().forEach(jobNr -> {
-			try {
-				Engine engine = new Engine(); // new instance per thread
-				logger.info("Executing Job nr.: " + jobNr);
-				engine.executeJob(jobNr);
-			} catch (Exception e) {
-				System.out.println("Error executing job " + jobNr + " " + e);
-				throw new RuntimeException(e);
-			}
-		});
+		// run in parallel, each worker executing jobs until the ensemble controller stops launching them
+		EnsembleController controller = PedSimCity.ensembleController;
+		int workers = Math.max(1, Math.min(Pars.jobs, Pars.concurrentJobs));
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int worker = 0; worker < workers; worker++)
+				futures.add(executor.submit(() -> {
+					for (int jobNr = controller.nextJob(); jobNr >= 0; jobNr = controller.nextJob()) {
+						try {
+							Engine engine = new Engine(); // new instance per job
+							logger.info("Executing Job nr.: " + jobNr);
+							engine.executeJob(jobNr);
+							controller.jobCompleted(jobNr);
+						} catch (Exception e) {
+							System.out.println("Error executing job " + jobNr + " " + e);
+							throw e;
+						}
+					}
+					return null;
+				}));
+			for (Future<?> future : futures)
+				future.get();
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		} finally {
+			executor.shutdownNow();
+			FlowHandler.shutdownExports();
+		}
+		controller.logPrecision();
+		new Exporter().saveEnsembleVolumes(PedSimCity.ensembleAggregator);
+		PedSimCity.routeCache.logStatistics();
+		if (PedSimCity.routeStore != null)
+			PedSimCity.routeStore.close();
 		handleEndSimulation();
 
 	}
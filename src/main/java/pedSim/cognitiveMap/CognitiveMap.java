@@ -1,13 +1,18 @@
 package pedSim.cognitiveMap;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import pedSim.agents.Agent;
 import pedSim.engine.PedSimCity;
 import pedSim.parameters.RouteChoicePars;
+import pedSim.utilities.StringEnum.EdgeFlag;
 import sim.graph.EdgeGraph;
 import sim.graph.GraphUtils;
 import sim.graph.NodeGraph;
@@ -25,6 +30,14 @@ public class CognitiveMap extends CommunityCognitiveMap {
 	protected Set<Integer> knownEdges = new HashSet<>();
 	protected Set<Integer> knownRegions = new HashSet<>();
 
+	// distinct sets of known regions, by fingerprint; 0 is never assigned
+	private static final Map<BitSet, Integer> knownRegionsFingerprints = new ConcurrentHashMap<>();
+	private static final AtomicInteger lastFingerprint = new AtomicInteger();
+	private int knownRegionsFingerprint = 0;
+	// distinct pairs of home and work nodes, from which the known edges are built, by fingerprint; 0 is never assigned
+	private static final Map<Long, Integer> knownEdgesFingerprints = new ConcurrentHashMap<>();
+	private int knownEdgesFingerprint = 0;
+
 	protected Agent agent;
 	public boolean formed = false;
 
@@ -35,7 +48,7 @@ public class CognitiveMap extends CommunityCognitiveMap {
 		this.agent = agent;
 
 		while (homeNode == null
-				|| homeNode.getEdges().stream().anyMatch(CommunityCognitiveMap.edgesWithinParks::contains))
+				|| homeNode.getEdges().stream().anyMatch(edge -> EdgeFlags.has(edge, EdgeFlag.WITHIN_PARK)))
 			homeNode = NodesLookup.randomNodeDMA(CommunityCognitiveMap.getNetwork(), "live");
 
 		workNode = NodesLookup.randomNodeBetweenDistanceIntervalDMA(CommunityCognitiveMap.getNetwork(), homeNode,
@@ -60,6 +73,7 @@ public class CognitiveMap extends CommunityCognitiveMap {
 		for (NodeGraph node : knownNodes) {
 			int region = node.getRegionID();
 			knownRegions.add(region);
+			knownRegionsFingerprint = 0;
 			edges.addAll(PedSimCity.regionsMap.get(region).edges);
 			edges.addAll(node.getEdges());
 			knownEdges.addAll(GraphUtils.getEdgeIDs(edges));
@@ -85,6 +99,41 @@ public class CognitiveMap extends CommunityCognitiveMap {
 		return knownRegions.contains(regionID);
 	}
 
+	/**
+	 * Returns the fingerprint of the regions known to the agent that are not known by the community. Agents with the
+	 * same fingerprint know the same regions, personally or through the community, and therefore avoid the same edges
+	 * at night. Each distinct set of regions is assigned a positive fingerprint when first met.
+	 *
+	 * @return The fingerprint of the known regions.
+	 */
+	public int getKnownRegionsFingerprint() {
+		if (knownRegionsFingerprint == 0) {
+			BitSet regions = new BitSet();
+			for (int regionID : knownRegions)
+				if (regionID >= 0 && !CommunityCognitiveMap.isRegionKnownByCommunity(regionID))
+					regions.set(regionID);
+			knownRegionsFingerprint = knownRegionsFingerprints.computeIfAbsent(regions,
+					key -> lastFingerprint.incrementAndGet());
+		}
+		return knownRegionsFingerprint;
+	}
+
+	/**
+	 * Returns the fingerprint of the edges known to the agent. The known edges are those of the regions of the home
+	 * and work nodes and those incident to the two nodes, so agents with the same fingerprint share home and work
+	 * nodes and know the same edges. Each distinct pair of nodes is assigned a positive fingerprint when first met.
+	 *
+	 * @return The fingerprint of the known edges.
+	 */
+	public int getKnownEdgesFingerprint() {
+		if (knownEdgesFingerprint == 0) {
+			long nodes = ((long) homeNode.getID() << 32) | (workNode.getID() & 0xFFFFFFFFL);
+			knownEdgesFingerprint = knownEdgesFingerprints.computeIfAbsent(nodes,
+					key -> lastFingerprint.incrementAndGet());
+		}
+		return knownEdgesFingerprint;
+	}
+
 	/**
 	 * Checks if a given edge is known to the agent.
 	 * 
@@ -55,6 +55,7 @@ public class CommunityCognitiveMap {
 	// night relevant sets
 	protected static Set<EdgeGraph> edgesWithinParks = new HashSet<>();
 	protected static Set<EdgeGraph> edgesAlongWater = new HashSet<>();
+	protected static Set<EdgeGraph> edgesWithinParksOrAlongWater = new HashSet<>();
 	protected static Set<EdgeGraph> litEdges = new HashSet<>();
 	protected static Set<EdgeGraph> nonLitNonKnown = new HashSet<>();
 
@@ -72,6 +73,9 @@ public class CommunityCognitiveMap {
 		setBuildingsAtJunctions();
 		barriers = PedSimCity.barriers;
 		setCommunityKnownEdges();
+		edgesWithinParksOrAlongWater = new HashSet<>(edgesWithinParks);
+		edgesWithinParksOrAlongWater.addAll(edgesAlongWater);
+		EdgeFlags.build(getCommunityNetwork());
 	}
 
 	/**
@@ -206,15 +210,23 @@ public class CommunityCognitiveMap {
 		return communityKnownEdges;
 	}
 
+	/**
+	 * Gets the road type of an edge, as classified on the basis of {@code Pars.roadTypes}.
+	 *
+	 * @param edge The edge.
+	 * @return The road type of the edge, or null if the edge's road type is not classified.
+	 */
+	public static RoadType getRoadType(EdgeGraph edge) {
+		return roadTypeMap.get(edge);
+	}
+
 	/**
 	 * Gets the set of edges within parks or along water.
 	 *
 	 * @return The set of edges located in parks or along water.
 	 */
 	public static Set<EdgeGraph> getEdgesWithinParksOrAlongWater() {
-		Set<EdgeGraph> edges = new HashSet<>(edgesWithinParks);
-		edges.addAll(edgesAlongWater);
-		return edges;
+		return edgesWithinParksOrAlongWater;
 	}
 
 	/**
@@ -0,0 +1,82 @@
+package pedSim.cognitiveMap;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+
+import pedSim.engine.PedSimCity;
+import pedSim.utilities.StringEnum.EdgeFlag;
+import pedSim.utilities.StringEnum.RoadType;
+import sim.graph.EdgeGraph;
+import sim.graph.Graph;
+
+/**
+ * The static properties of the edges of the community network relevant to movement at night (parks, water, lighting,
+ * community knowledge, road class), held as one bitset per {@link EdgeFlag}, indexed by edgeID.
+ *
+ * The flags are built once the barriers have been integrated and the community cognitive map has been set; checking a
+ * property of an edge is then a single bit test, instead of a lookup in a set of edges.
+ */
+public class EdgeFlags {
+
+	private static final Map<EdgeFlag, long[]> flags = new EnumMap<>(EdgeFlag.class);
+
+	private EdgeFlags() {
+	}
+
+	/**
+	 * Builds the flags of the edges of the given network from the sets of the community cognitive map.
+	 *
+	 * @param network The community network.
+	 */
+	static void build(Graph network) {
+
+		for (EdgeFlag flag : EdgeFlag.values())
+			flags.put(flag, new long[(PedSimCity.edgeSlots + 63) >> 6]);
+
+		set(EdgeFlag.WITHIN_PARK, CommunityCognitiveMap.edgesWithinParks);
+		set(EdgeFlag.ALONG_WATER, CommunityCognitiveMap.edgesAlongWater);
+		set(EdgeFlag.PARK_OR_WATER, CommunityCognitiveMap.edgesWithinParks);
+		set(EdgeFlag.PARK_OR_WATER, CommunityCognitiveMap.edgesAlongWater);
+		set(EdgeFlag.LIT, CommunityCognitiveMap.litEdges);
+		set(EdgeFlag.COMMUNITY_KNOWN, CommunityCognitiveMap.communityKnownEdges);
+		set(EdgeFlag.NON_LIT_NON_KNOWN, CommunityCognitiveMap.nonLitNonKnown);
+		for (EdgeGraph edge : network.getEdges()) {
+			RoadType roadType = CommunityCognitiveMap.getRoadType(edge);
+			if (roadType != null)
+				set(roadClassFlag(roadType), edge.getID());
+		}
+	}
+
+	private static EdgeFlag roadClassFlag(RoadType roadType) {
+		return switch (roadType) {
+		case PRIMARY -> EdgeFlag.PRIMARY;
+		case SECONDARY -> EdgeFlag.SECONDARY;
+		case TERTIARY -> EdgeFlag.TERTIARY;
+		case NEIGHBOURHOOD -> EdgeFlag.NEIGHBOURHOOD;
+		case UNKNOWN -> EdgeFlag.UNKNOWN_ROAD_TYPE;
+		};
+	}
+
+	private static void set(EdgeFlag flag, Collection<EdgeGraph> edges) {
+		for (EdgeGraph edge : edges)
+			set(flag, edge.getID());
+	}
+
+	private static void set(EdgeFlag flag, int edgeID) {
+		flags.get(flag)[edgeID >> 6] |= 1L << edgeID;
+	}
+
+	/**
+	 * Checks whether an edge has the given flag.
+	 *
+	 * @param edge The edge.
+	 * @param flag The flag.
+	 * @return true if the edge has the flag; false otherwise, or if the flags have not been built yet.
+	 */
+	public static boolean has(EdgeGraph edge, EdgeFlag flag) {
+		long[] bits = flags.get(flag);
+		int edgeID = edge.getID();
+		return bits != null && edgeID >= 0 && (edgeID >> 6) < bits.length && (bits[edgeID >> 6] & (1L << edgeID)) != 0;
+	}
+}
@@ -0,0 +1,287 @@
+package pedSim.dijkstra;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import pedSim.parameters.Pars;
+import pedSim.parameters.RouteChoicePars;
+import pedSim.utilities.LoggerUtil;
+
+/**
+ * The preprocessing of the ALT (A*, Landmarks, Triangle inequality) goal-directed search. A small set of nodes
+ * (landmarks, in the graph-theoretical sense, not the buildings used as landmarks by the agents) is selected on the
+ * compact graph and the distance between each landmark and every node is stored in a primitive table.
+ *
+ * Distances are computed on lower-bound edge weights: the edge length times the lowest perception-error multiplier
+ * that can apply to the edge ({@code RouteChoicePars.minCostPerceptionError} on edges with natural barriers,
+ * {@code RouteChoicePars.minBaseCostPerceptionError} elsewhere). By the triangle inequality, |d(l, t) - d(l, v)| is
+ * then a lower bound of the perceived cost of any route between v and t for any landmark l; the largest bound across
+ * the landmarks is used, as it is, as heuristic by the Dijkstra routers.
+ *
+ * The tables are cached on disk under {@code Pars.cachePath}, keyed by the city, the number of landmarks and a
+ * signature of the graph and of the lower-bound weights.
+ */
+public class AltLandmarks {
+
+	private static final Logger logger = LoggerUtil.getLogger();
+	private static final int MAGIC = 0x414C5432; // "ALT2"
+
+	/** The number of landmarks. */
+	public final int count;
+
+	/** The node index of each landmark. */
+	public final int[] landmarks;
+
+	// distances[l * nodeCount + v]: lower-bound distance between landmark l and node v, infinite when v is unreachable
+	private final float[] distances;
+	private final int nodeCount;
+
+	/**
+	 * Creates the tables from the given landmarks and distances.
+	 *
+	 * @param nodeCount The number of nodes in the graph.
+	 * @param landmarks The node index of each landmark.
+	 * @param distances The distance tables, landmark by landmark.
+	 */
+	private AltLandmarks(int nodeCount, int[] landmarks, float[] distances) {
+		this.nodeCount = nodeCount;
+		this.count = landmarks.length;
+		this.landmarks = landmarks;
+		this.distances = distances;
+	}
+
+	/**
+	 * Loads the landmark tables for the given graph from the disk cache or, if they are not there or do not match the
+	 * graph, computes them and stores them in the cache.
+	 *
+	 * @param graph       The compact graph.
+	 * @param nrLandmarks The number of landmarks to select.
+	 * @return The landmark tables.
+	 */
+	public static AltLandmarks loadOrCompute(CompactGraph graph, int nrLandmarks) {
+
+		nrLandmarks = Math.min(nrLandmarks, graph.nodeCount);
+		long signature = signature(graph);
+		File cacheFile = new File(Pars.cachePath, Pars.cityName + "_alt_" + nrLandmarks + ".bin");
+
+		AltLandmarks altLandmarks = read(cacheFile, graph, nrLandmarks, signature);
+		if (altLandmarks != null) {
+			logger.info("ALT landmarks loaded from " + cacheFile.getPath());
+			return altLandmarks;
+		}
+
+		altLandmarks = compute(graph, nrLandmarks);
+		write(cacheFile, altLandmarks, graph, signature);
+		logger.info(nrLandmarks + " ALT landmarks computed.");
+		return altLandmarks;
+	}
+
+	/**
+	 * Selects the landmarks by farthest selection, each landmark being the node farthest from the ones already
+	 * selected, and computes their distance tables.
+	 *
+	 * @param graph       The compact graph.
+	 * @param nrLandmarks The number of landmarks to select.
+	 * @return The landmark tables.
+	 */
+	public static AltLandmarks compute(CompactGraph graph, int nrLandmarks) {
+
+		int nodeCount = graph.nodeCount;
+		int[] landmarks = new int[nrLandmarks];
+		float[] distances = new float[nrLandmarks * nodeCount];
+		double[] row = new double[nodeCount];
+
+		// distance of each node from the closest landmark selected so far; initially from an arbitrary node, so that
+		// the first landmark is the node farthest from it
+		double[] minDistances = new double[nodeCount];
+		shortestDistances(graph, 0, minDistances);
+
+		for (int l = 0; l < nrLandmarks; l++) {
+			int landmark = farthestNode(minDistances);
+			landmarks[l] = landmark;
+			shortestDistances(graph, landmark, row);
+
+			for (int node = 0; node < nodeCount; node++) {
+				distances[l * nodeCount + node] = (float) row[node];
+				minDistances[node] = l == 0 ? row[node] : Math.min(minDistances[node], row[node]);
+			}
+		}
+		return new AltLandmarks(nodeCount, landmarks, distances);
+	}
+
+	/**
+	 * Returns the node with the largest finite distance.
+	 *
+	 * @param distances The distance of each node.
+	 * @return The node index.
+	 */
+	private static int farthestNode(double[] distances) {
+		int farthest = 0;
+		for (int node = 1; node < distances.length; node++)
+			if (distances[node] != Double.POSITIVE_INFINITY && distances[node] > distances[farthest])
+				farthest = node;
+		return farthest;
+	}
+
+	/**
+	 * Returns the lowest perceived cost of an edge: its length times the lowest perception-error multiplier that can
+	 * apply to it, by day or at night.
+	 *
+	 * @param graph The compact graph.
+	 * @param edge  The edge index.
+	 * @return The lower-bound weight of the edge.
+	 */
+	private static double lowerBoundWeight(CompactGraph graph, int edge) {
+		double multiplier = graph.edgePositiveBarrier[edge]
+				? Math.min(RouteChoicePars.minCostPerceptionError, RouteChoicePars.minBaseCostPerceptionError)
+				: RouteChoicePars.minBaseCostPerceptionError;
+		return graph.edgeLength[edge] * multiplier;
+	}
+
+	/**
+	 * Computes the lower-bound distance from the source node to every node of the graph.
+	 *
+	 * @param graph     The compact graph.
+	 * @param source    The source node index.
+	 * @param distances The array filled with the distances, infinite for unreachable nodes.
+	 */
+	private static void shortestDistances(CompactGraph graph, int source, double[] distances) {
+
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		IndexedHeap heap = new IndexedHeap(graph.nodeCount);
+		distances[source] = 0.0;
+		heap.offer(source, 0.0);
+
+		while (!heap.isEmpty()) {
+			int current = heap.poll();
+			for (int arc = graph.firstArc[current]; arc < graph.firstArc[current + 1]; arc++) {
+				int target = graph.arcTarget[arc];
+				double distance = distances[current] + lowerBoundWeight(graph, graph.arcEdge[arc]);
+				if (distance < distances[target]) {
+					distances[target] = distance;
+					heap.offer(target, distance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the distances between the landmarks and the given target node, to be passed to
+	 * {@link #lowerBound(int, float[])} for the queries towards that node.
+	 *
+	 * @param target    The target node index.
+	 * @param distances An array of {@link #count} elements, filled with the distances.
+	 * @return The filled array.
+	 */
+	public float[] distancesTo(int target, float[] distances) {
+		for (int l = 0; l < count; l++)
+			distances[l] = this.distances[l * nodeCount + target];
+		return distances;
+	}
+
+	/**
+	 * Returns a lower bound of the perceived cost of a route between the given node and the target node.
+	 *
+	 * @param node            The node index.
+	 * @param targetDistances The distances between the landmarks and the target, see {@link #distancesTo(int, float[])}.
+	 * @return The lower bound; infinite when the target cannot be reached from the node.
+	 */
+	public double lowerBound(int node, float[] targetDistances) {
+		double bound = 0.0;
+		for (int l = 0, offset = node; l < count; l++, offset += nodeCount) {
+			// NaN when both nodes are unreachable from the landmark, and then ignored
+			double difference = Math.abs(targetDistances[l] - distances[offset]);
+			if (difference > bound)
+				bound = difference;
+		}
+		return bound;
+	}
+
+	/**
+	 * Computes a signature of the graph topology and lower-bound edge weights, used to validate the cached tables.
+	 *
+	 * @param graph The compact graph.
+	 * @return The signature.
+	 */
+	private static long signature(CompactGraph graph) {
+		long signature = 1125899906842597L;
+		for (int arc = 0; arc < graph.arcCount; arc++)
+			signature = 31 * signature + graph.arcTarget[arc];
+		for (int node = 0; node <= graph.nodeCount; node++)
+			signature = 31 * signature + graph.firstArc[node];
+		for (int edge = 0; edge < graph.edgeCount; edge++)
+			signature = 31 * signature + Double.doubleToLongBits(lowerBoundWeight(graph, edge));
+		return signature;
+	}
+
+	/**
+	 * Reads the tables from the cache file.
+	 *
+	 * @param cacheFile   The cache file.
+	 * @param graph       The compact graph.
+	 * @param nrLandmarks The number of landmarks expected.
+	 * @param signature   The signature of the graph.
+	 * @return The landmark tables, or null if the file does not exist or does not match the graph.
+	 */
+	private static AltLandmarks read(File cacheFile, CompactGraph graph, int nrLandmarks, long signature) {
+
+		if (!cacheFile.exists())
+			return null;
+
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(cacheFile), 1 << 16))) {
+			if (input.readInt() != MAGIC || input.readInt() != graph.nodeCount || input.readInt() != nrLandmarks
+					|| input.readLong() != signature)
+				return null;
+
+			int[] landmarks = new int[nrLandmarks];
+			for (int l = 0; l < nrLandmarks; l++)
+				landmarks[l] = input.readInt();
+			float[] distances = new float[nrLandmarks * graph.nodeCount];
+			for (int i = 0; i < distances.length; i++)
+				distances[i] = input.readFloat();
+			return new AltLandmarks(graph.nodeCount, landmarks, distances);
+		} catch (IOException e) {
+			logger.warning("Reading the ALT landmarks cache failed: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the tables to the cache file.
+	 *
+	 * @param cacheFile    The cache file.
+	 * @param altLandmarks The landmark tables.
+	 * @param graph        The compact graph.
+	 * @param signature    The signature of the graph.
+	 */
+	private static void write(File cacheFile, AltLandmarks altLandmarks, CompactGraph graph, long signature) {
+
+		try {
+			Files.createDirectories(Paths.get(Pars.cachePath));
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(cacheFile), 1 << 16))) {
+				output.writeInt(MAGIC);
+				output.writeInt(graph.nodeCount);
+				output.writeInt(altLandmarks.count);
+				output.writeLong(signature);
+				for (int landmark : altLandmarks.landmarks)
+					output.writeInt(landmark);
+				for (float distance : altLandmarks.distances)
+					output.writeFloat(distance);
+			}
+		} catch (IOException e) {
+			logger.warning("Writing the ALT landmarks cache failed: " + e.getMessage());
+		}
+	}
+}
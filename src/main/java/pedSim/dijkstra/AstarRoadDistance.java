@@ -0,0 +1,109 @@
+package pedSim.dijkstra;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.engine.PedSimCity;
+import sim.graph.EdgeGraph;
+import sim.graph.NodeGraph;
+import sim.routing.Route;
+
+/**
+ * The class allows computing the road distance shortest route by employing the A* algorithm, with the Euclidean
+ * distance to the destination as heuristic, on the compact primal graph of the street network. It is used by the
+ * agents to compute alternative routes while walking, when some edges have to be avoided.
+ *
+ * The search draws its state from the calling thread's {@link SearchWorkspace}.
+ */
+public class AstarRoadDistance {
+
+	private CompactGraph graph;
+	private SearchWorkspace workspace;
+	private int origin, destination;
+
+	/**
+	 * Computes the road distance shortest route between the origin node and the destination node, without traversing
+	 * the given edges.
+	 *
+	 * @param originNode      The starting node for the path.
+	 * @param destinationNode The destination node to reach.
+	 * @param edgesToAvoid    The edges that should not be traversed; it may be empty.
+	 * @return A {@code Route} object representing the shortest path, or null if the destination cannot be reached.
+	 */
+	public Route astarRoute(NodeGraph originNode, NodeGraph destinationNode, Set<EdgeGraph> edgesToAvoid) {
+
+		graph = PedSimCity.compactNetwork;
+		workspace = SearchWorkspace.get();
+		origin = graph.nodeIndex(originNode);
+		destination = graph.nodeIndex(destinationNode);
+
+		for (EdgeGraph edge : edgesToAvoid) {
+			int index = graph.edgeIndex(edge);
+			if (index >= 0)
+				workspace.excludeEdge(index);
+		}
+
+		runAstar();
+		if (!workspace.isReached(destination))
+			return null;
+
+		Route route = new Route();
+		route.directedEdgesSequence = reconstructSequence();
+		route.computeRouteSequences();
+		return route;
+	}
+
+	/**
+	 * Runs the A* algorithm until the destination node is settled or no more nodes can be reached.
+	 */
+	private void runAstar() {
+
+		IndexedHeap unvisitedNodes = workspace.heap;
+		workspace.setCost(origin, 0.0, -1);
+		unvisitedNodes.offer(origin, graph.euclideanDistance(origin, destination));
+
+		while (!unvisitedNodes.isEmpty()) {
+			int current = unvisitedNodes.poll();
+			if (!workspace.settle(current))
+				continue;
+			if (current == destination)
+				break;
+
+			double currentCost = workspace.getCost(current);
+			for (int arc = graph.firstArc[current]; arc < graph.firstArc[current + 1]; arc++) {
+				int target = graph.arcTarget[arc];
+				int edge = graph.arcEdge[arc];
+				if (workspace.isSettled(target) || workspace.isExcluded(edge))
+					continue;
+
+				double tentativeCost = currentCost + graph.edgeLength[edge];
+				if (tentativeCost < workspace.getCost(target)) {
+					workspace.setCost(target, tentativeCost, arc);
+					unvisitedNodes.offer(target, tentativeCost + graph.euclideanDistance(target, destination));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reconstructs the sequence of directed edges composing the path, following the predecessor arcs back from the
+	 * destination node.
+	 *
+	 * @return A List of DirectedEdges representing the path sequence.
+	 */
+	private List<DirectedEdge> reconstructSequence() {
+
+		List<DirectedEdge> directedEdgesSequence = new ArrayList<>();
+		int arc = workspace.getPredecessorArc(destination);
+		while (arc != -1) {
+			directedEdgesSequence.add(graph.arcDirectedEdge[arc]);
+			arc = workspace.getPredecessorArc(graph.arcSource[arc]);
+		}
+		Collections.reverse(directedEdgesSequence);
+		return directedEdgesSequence;
+	}
+}
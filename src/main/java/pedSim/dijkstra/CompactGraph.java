@@ -0,0 +1,266 @@
+package pedSim.dijkstra;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.cognitiveMap.CommunityCognitiveMap;
+import pedSim.cognitiveMap.EdgeFlags;
+import pedSim.engine.PedSimCity;
+import pedSim.parameters.RouteChoicePars;
+import pedSim.utilities.StringEnum.EdgeFlag;
+import pedSim.utilities.StringEnum.RoadType;
+import pedSim.utilities.StringEnum.RoutingProfile;
+import sim.graph.EdgeGraph;
+import sim.graph.Graph;
+import sim.graph.NodeGraph;
+import sim.util.geo.AttributeValue;
+
+/**
+ * An immutable, compressed-sparse-row (CSR) copy of the primal street network. Nodes and edges are identified by dense
+ * int indices, the adjacency of each node is stored as a contiguous range of arcs, and the edge attributes needed by the
+ * routers are held in primitive arrays. This allows the Dijkstra routers to relax edges without going through the
+ * planargraph objects and the {@code Graph} lookups.
+ *
+ * The graph is built once, in {@code Environment.prepare()}, after the barriers, the regions and the community cognitive
+ * map have been set up.
+ */
+public class CompactGraph {
+
+	/** The number of nodes in the graph. */
+	public final int nodeCount;
+
+	/** The number of (undirected) edges in the graph. */
+	public final int edgeCount;
+
+	/** The number of arcs, i.e. directed edges, in the graph. */
+	public final int arcCount;
+
+	/** The original nodes, by node index. */
+	public final NodeGraph[] nodes;
+
+	/** The original edges, by edge index. */
+	public final EdgeGraph[] edges;
+
+	/** The coordinates of each node. */
+	public final double[] nodeX;
+	public final double[] nodeY;
+
+	/** The outgoing arcs of node {@code i} are the ones in the range [{@code firstArc[i]}, {@code firstArc[i + 1]}). */
+	public final int[] firstArc;
+
+	/** The node index each arc starts from. */
+	public final int[] arcSource;
+
+	/** The node index each arc leads to. */
+	public final int[] arcTarget;
+
+	/** The edge index each arc belongs to. */
+	public final int[] arcEdge;
+
+	/** The directed edge each arc corresponds to, used to return routes as directed edges sequences. */
+	public final DirectedEdge[] arcDirectedEdge;
+
+	/** The node indexes of the two endpoints of each edge. */
+	public final int[] edgeFromNode;
+	public final int[] edgeToNode;
+
+	/** The length of each edge. */
+	public final double[] edgeLength;
+
+	/** Whether each edge is lit. */
+	public final boolean[] edgeLit;
+
+	/** Whether each edge lies within a park or along water. */
+	public final boolean[] edgeParkOrWater;
+
+	/** Whether each edge is along a positive (natural) barrier. */
+	public final boolean[] edgePositiveBarrier;
+
+	/** The region ID of each edge, -1 for gateway edges or when regions are not available. */
+	public final int[] edgeRegionID;
+
+	/** The {@link RoadType} ordinal of each edge, -1 when the road type is not classified. */
+	public final byte[] edgeRoadType;
+
+	/** The region ID of each node, -1 when regions are not available. */
+	public final int[] nodeRegionID;
+
+	private final Map<NodeGraph, Integer> nodeIndex;
+	private final int[] edgeIndexByID;
+
+	/**
+	 * Builds the compact representation of the given network.
+	 *
+	 * @param network The primal graph of the street network.
+	 */
+	public CompactGraph(Graph network) {
+
+		List<NodeGraph> networkNodes = network.getNodes();
+		List<EdgeGraph> networkEdges = network.getEdges();
+		nodeCount = networkNodes.size();
+		edgeCount = networkEdges.size();
+
+		nodes = networkNodes.toArray(new NodeGraph[nodeCount]);
+		nodeIndex = new HashMap<>(nodeCount * 2);
+		nodeX = new double[nodeCount];
+		nodeY = new double[nodeCount];
+		nodeRegionID = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			nodeIndex.put(nodes[node], node);
+			nodeX[node] = nodes[node].getCoordinate().x;
+			nodeY[node] = nodes[node].getCoordinate().y;
+			Integer regionID = nodes[node].getRegionID();
+			nodeRegionID[node] = regionID != null ? regionID : -1;
+		}
+
+		edges = networkEdges.toArray(new EdgeGraph[edgeCount]);
+		edgeFromNode = new int[edgeCount];
+		edgeToNode = new int[edgeCount];
+		edgeLength = new double[edgeCount];
+		edgeLit = new boolean[edgeCount];
+		edgeParkOrWater = new boolean[edgeCount];
+		edgePositiveBarrier = new boolean[edgeCount];
+		edgeRegionID = new int[edgeCount];
+		edgeRoadType = new byte[edgeCount];
+
+		edgeIndexByID = new int[PedSimCity.edgeSlots];
+		Arrays.fill(edgeIndexByID, -1);
+
+		for (int edge = 0; edge < edgeCount; edge++)
+			setEdgeAttributes(edge, edges[edge]);
+
+		firstArc = new int[nodeCount + 1];
+		for (int node = 0; node < nodeCount; node++)
+			firstArc[node + 1] = firstArc[node] + nodes[node].getOutEdges().getEdges().size();
+
+		arcCount = firstArc[nodeCount];
+		arcSource = new int[arcCount];
+		arcTarget = new int[arcCount];
+		arcEdge = new int[arcCount];
+		arcDirectedEdge = new DirectedEdge[arcCount];
+
+		for (int node = 0; node < nodeCount; node++) {
+			int arc = firstArc[node];
+			for (DirectedEdge directedEdge : nodes[node].getOutEdges().getEdges()) {
+				arcSource[arc] = node;
+				arcTarget[arc] = nodeIndex.get((NodeGraph) directedEdge.getToNode());
+				arcEdge[arc] = edgeIndex((EdgeGraph) directedEdge.getEdge());
+				arcDirectedEdge[arc] = directedEdge;
+				arc++;
+			}
+		}
+	}
+
+	/**
+	 * Copies the attributes of an edge into the primitive arrays.
+	 *
+	 * @param edge      The edge index.
+	 * @param edgeGraph The edge.
+	 */
+	private void setEdgeAttributes(int edge, EdgeGraph edgeGraph) {
+
+		edgeIndexByID[edgeGraph.getID()] = edge;
+		edgeFromNode[edge] = nodeIndex.get(edgeGraph.getFromNode());
+		edgeToNode[edge] = nodeIndex.get(edgeGraph.getToNode());
+		edgeLength[edge] = edgeGraph.getLength();
+
+		AttributeValue lit = edgeGraph.attributes.get("lit");
+		edgeLit[edge] = lit != null && lit.getBoolean();
+		edgeParkOrWater[edge] = EdgeFlags.has(edgeGraph, EdgeFlag.PARK_OR_WATER);
+
+		AttributeValue positiveBarriers = edgeGraph.attributes.get("positiveBarriers");
+		edgePositiveBarrier[edge] = positiveBarriers != null && !positiveBarriers.getArray().isEmpty();
+
+		Integer regionID = edgeGraph.getRegionID();
+		edgeRegionID[edge] = regionID != null ? regionID : -1;
+
+		RoadType roadType = CommunityCognitiveMap.getRoadType(edgeGraph);
+		edgeRoadType[edge] = roadType != null ? (byte) roadType.ordinal() : -1;
+	}
+
+	/**
+	 * Returns the index of the given node.
+	 *
+	 * @param node The node.
+	 * @return The node index, or -1 if the node is not part of the graph.
+	 */
+	public int nodeIndex(NodeGraph node) {
+		Integer index = nodeIndex.get(node);
+		return index != null ? index : -1;
+	}
+
+	/**
+	 * Returns the index of the given edge.
+	 *
+	 * @param edge The edge.
+	 * @return The edge index, or -1 if the edge is not part of the graph.
+	 */
+	public int edgeIndex(EdgeGraph edge) {
+		return edgeIndexByID(edge.getID());
+	}
+
+	/**
+	 * Returns the index of the edge with the given edgeID.
+	 *
+	 * @param edgeID The edgeID, as in the input data.
+	 * @return The edge index, or -1 if there is no such edge.
+	 */
+	public int edgeIndexByID(int edgeID) {
+		return edgeID >= 0 && edgeID < edgeIndexByID.length ? edgeIndexByID[edgeID] : -1;
+	}
+
+	/**
+	 * Returns the arc that leaves the given node along the given edge.
+	 *
+	 * @param node The node index.
+	 * @param edge The edge index.
+	 * @return The arc index, or -1 if the edge is not incident to the node.
+	 */
+	public int findArc(int node, int edge) {
+		for (int arc = firstArc[node]; arc < firstArc[node + 1]; arc++)
+			if (arcEdge[arc] == edge)
+				return arc;
+		return -1;
+	}
+
+	/**
+	 * Returns the Euclidean distance between two nodes.
+	 *
+	 * @param node      The first node index.
+	 * @param otherNode The second node index.
+	 * @return The straight-line distance between the two nodes.
+	 */
+	public double euclideanDistance(int node, int otherNode) {
+		return Math.hypot(nodeX[node] - nodeX[otherNode], nodeY[node] - nodeY[otherNode]);
+	}
+
+	/**
+	 * Returns the weight of an edge for an agent-independent routing profile: at day, the length of the edges along
+	 * natural barriers is discounted by the nominal natural-barriers multiplier; at night, non-vulnerable agents only
+	 * consider the length.
+	 *
+	 * @param edge    The edge index.
+	 * @param profile The routing profile.
+	 * @return The weight of the edge.
+	 */
+	public double weight(int edge, RoutingProfile profile) {
+		if (profile == RoutingProfile.DAY && edgePositiveBarrier[edge])
+			return edgeLength[edge] * Math.max(RouteChoicePars.minCostPerceptionError, RouteChoicePars.naturalBarriers);
+		return edgeLength[edge];
+	}
+
+	/**
+	 * Checks whether the given edge is incident to the given node.
+	 *
+	 * @param edge The edge index.
+	 * @param node The node index.
+	 * @return true if the node is one of the endpoints of the edge.
+	 */
+	public boolean isIncident(int edge, int node) {
+		return edgeFromNode[edge] == node || edgeToNode[edge] == node;
+	}
+}
@@ -0,0 +1,413 @@
+package pedSim.dijkstra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.utilities.StringEnum.RoutingProfile;
+import sim.graph.NodeGraph;
+
+/**
+ * A contraction hierarchy built on the compact graph for one {@link RoutingProfile}, i.e. for a set of edge weights
+ * that are the same for every agent (no per-agent perception error, no per-agent knowledge of the network).
+ *
+ * Nodes are contracted one at a time, by increasing edge difference; whenever the only shortest path between two
+ * neighbours of the contracted node passes through it, a shortcut is added between them. A query then runs two
+ * Dijkstra searches, from the origin and from the destination, that only move towards nodes contracted later, and
+ * settles a few hundred nodes at most. The shortcuts in the resulting route are unpacked into the directed edges of the
+ * street network.
+ */
+public class ContractionHierarchy {
+
+	// maximum number of nodes settled by each witness search during the contraction
+	private static final int WITNESS_SETTLE_LIMIT = 250;
+
+	public final RoutingProfile profile;
+	private final CompactGraph graph;
+
+	// hierarchy edges: original edges (middle == -1) and shortcuts (middle node and the two edges they replace)
+	private int chEdgeCount;
+	private int[] chEdgeFrom;
+	private int[] chEdgeTo;
+	private double[] chEdgeWeight;
+	private int[] chEdgeMiddle;
+	private int[] chEdgeFirstChild;
+	private int[] chEdgeSecondChild;
+	private int[] chEdgeOriginal;
+
+	// the order in which the nodes have been contracted
+	private final int[] rank;
+
+	// upward graph: the arcs of node i, towards higher-ranked nodes, are in [upFirstArc[i], upFirstArc[i + 1])
+	private int[] upFirstArc;
+	private int[] upArcSource;
+	private int[] upArcTarget;
+	private double[] upArcWeight;
+	private int[] upArcEdge;
+
+	// contraction state
+	private int[][] adjacency;
+	private int[] adjacencySize;
+	private boolean[] contracted;
+	private int[] contractedNeighbours;
+	private SearchWorkspace witness;
+
+	/**
+	 * Builds the contraction hierarchy of the given graph for the given profile.
+	 *
+	 * @param graph   The compact graph.
+	 * @param profile The routing profile defining the edge weights.
+	 */
+	public ContractionHierarchy(CompactGraph graph, RoutingProfile profile) {
+
+		this.graph = graph;
+		this.profile = profile;
+		int nodeCount = graph.nodeCount;
+		rank = new int[nodeCount];
+
+		int capacity = graph.edgeCount * 2;
+		chEdgeFrom = new int[capacity];
+		chEdgeTo = new int[capacity];
+		chEdgeWeight = new double[capacity];
+		chEdgeMiddle = new int[capacity];
+		chEdgeFirstChild = new int[capacity];
+		chEdgeSecondChild = new int[capacity];
+		chEdgeOriginal = new int[capacity];
+
+		adjacency = new int[nodeCount][];
+		adjacencySize = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++)
+			adjacency[node] = new int[Math.max(4, graph.firstArc[node + 1] - graph.firstArc[node])];
+		contracted = new boolean[nodeCount];
+		contractedNeighbours = new int[nodeCount];
+		witness = new SearchWorkspace(graph);
+
+		for (int edge = 0; edge < graph.edgeCount; edge++)
+			if (graph.edgeFromNode[edge] != graph.edgeToNode[edge])
+				addEdge(graph.edgeFromNode[edge], graph.edgeToNode[edge], graph.weight(edge, profile), -1, -1, -1,
+						edge);
+
+		contractNodes();
+		buildUpwardGraph();
+
+		// the contraction state is not needed by the queries
+		adjacency = null;
+		adjacencySize = null;
+		contracted = null;
+		contractedNeighbours = null;
+		witness = null;
+	}
+
+	/**
+	 * Contracts all the nodes, picking each time the node with the lowest priority. Priorities are updated lazily: the
+	 * priority of the polled node is recomputed and, if it is no longer the lowest, the node is queued again.
+	 */
+	private void contractNodes() {
+
+		IndexedHeap queue = new IndexedHeap(graph.nodeCount);
+		for (int node = 0; node < graph.nodeCount; node++)
+			queue.offer(node, contract(node, true));
+
+		int order = 0;
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			double priority = contract(node, true);
+			if (!queue.isEmpty() && priority > queue.peekKey()) {
+				queue.offer(node, priority);
+				continue;
+			}
+			contract(node, false);
+			contracted[node] = true;
+			rank[node] = order++;
+		}
+	}
+
+	/**
+	 * Contracts a node, adding the shortcuts needed between its uncontracted neighbours, or only simulates its
+	 * contraction to compute its priority.
+	 *
+	 * @param node     The node index.
+	 * @param simulate true to only count the shortcuts.
+	 * @return The priority of the node: the edge difference plus the number of neighbours already contracted.
+	 */
+	private double contract(int node, boolean simulate) {
+
+		// the uncontracted neighbours, each reached through the lightest edge
+		int[] neighbours = new int[adjacencySize[node]];
+		int[] neighbourEdges = new int[adjacencySize[node]];
+		int neighbourCount = 0;
+		for (int i = 0; i < adjacencySize[node]; i++) {
+			int edge = adjacency[node][i];
+			int neighbour = otherEndpoint(edge, node);
+			if (contracted[neighbour])
+				continue;
+			int index = indexOf(neighbours, neighbourCount, neighbour);
+			if (index < 0) {
+				neighbours[neighbourCount] = neighbour;
+				neighbourEdges[neighbourCount++] = edge;
+			} else if (chEdgeWeight[edge] < chEdgeWeight[neighbourEdges[index]])
+				neighbourEdges[index] = edge;
+		}
+
+		double maxWeight = 0.0;
+		for (int i = 0; i < neighbourCount; i++)
+			maxWeight = Math.max(maxWeight, chEdgeWeight[neighbourEdges[i]]);
+
+		int shortcuts = 0;
+		for (int i = 0; i < neighbourCount - 1; i++) {
+			double weightIn = chEdgeWeight[neighbourEdges[i]];
+			witnessSearch(neighbours[i], node, weightIn + maxWeight);
+			for (int j = i + 1; j < neighbourCount; j++) {
+				double viaNode = weightIn + chEdgeWeight[neighbourEdges[j]];
+				if (witness.getCost(neighbours[j]) <= viaNode)
+					continue;
+				shortcuts++;
+				if (!simulate)
+					addEdge(neighbours[i], neighbours[j], viaNode, node, neighbourEdges[i], neighbourEdges[j], -1);
+			}
+		}
+
+		if (!simulate)
+			for (int i = 0; i < neighbourCount; i++)
+				contractedNeighbours[neighbours[i]]++;
+
+		return shortcuts - neighbourCount + contractedNeighbours[node];
+	}
+
+	/**
+	 * Runs a bounded Dijkstra search from the source node over the uncontracted nodes, ignoring the node being
+	 * contracted, to find paths (witnesses) that make shortcuts unnecessary.
+	 *
+	 * @param source   The source node index.
+	 * @param ignored  The node being contracted.
+	 * @param maxCost  The cost beyond which the search stops.
+	 */
+	private void witnessSearch(int source, int ignored, double maxCost) {
+
+		witness.reset();
+		IndexedHeap heap = witness.heap;
+		witness.setCost(source, 0.0, -1);
+		heap.offer(source, 0.0);
+
+		int settled = 0;
+		while (!heap.isEmpty() && heap.peekKey() <= maxCost && settled++ < WITNESS_SETTLE_LIMIT) {
+			int current = heap.poll();
+			witness.settle(current);
+			double currentCost = witness.getCost(current);
+			for (int i = 0; i < adjacencySize[current]; i++) {
+				int edge = adjacency[current][i];
+				int target = otherEndpoint(edge, current);
+				if (target == ignored || contracted[target] || witness.isSettled(target))
+					continue;
+				double cost = currentCost + chEdgeWeight[edge];
+				if (cost < witness.getCost(target)) {
+					witness.setCost(target, cost, -1);
+					heap.offer(target, cost);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Builds the upward graph in CSR form, each hierarchy edge becoming an arc from its lower-ranked endpoint.
+	 */
+	private void buildUpwardGraph() {
+
+		int nodeCount = graph.nodeCount;
+		upFirstArc = new int[nodeCount + 1];
+		for (int edge = 0; edge < chEdgeCount; edge++)
+			upFirstArc[lowerEndpoint(edge) + 1]++;
+		for (int node = 0; node < nodeCount; node++)
+			upFirstArc[node + 1] += upFirstArc[node];
+
+		upArcSource = new int[chEdgeCount];
+		upArcTarget = new int[chEdgeCount];
+		upArcWeight = new double[chEdgeCount];
+		upArcEdge = new int[chEdgeCount];
+		int[] next = Arrays.copyOf(upFirstArc, nodeCount);
+		for (int edge = 0; edge < chEdgeCount; edge++) {
+			int lower = lowerEndpoint(edge);
+			int arc = next[lower]++;
+			upArcSource[arc] = lower;
+			upArcTarget[arc] = otherEndpoint(edge, lower);
+			upArcWeight[arc] = chEdgeWeight[edge];
+			upArcEdge[arc] = edge;
+		}
+	}
+
+	/**
+	 * Computes the shortest route between two nodes.
+	 *
+	 * @param originNode      The starting node for the path.
+	 * @param destinationNode The destination node to reach.
+	 * @return A List of DirectedEdges representing the shortest path; empty if the destination cannot be reached or
+	 *         coincides with the origin.
+	 */
+	public List<DirectedEdge> route(NodeGraph originNode, NodeGraph destinationNode) {
+
+		List<DirectedEdge> directedEdgesSequence = new ArrayList<>();
+		int origin = graph.nodeIndex(originNode);
+		int destination = graph.nodeIndex(destinationNode);
+		if (origin == destination)
+			return directedEdgesSequence;
+
+		SearchWorkspace forward = SearchWorkspace.get(SearchWorkspace.FORWARD);
+		SearchWorkspace backward = SearchWorkspace.get(SearchWorkspace.BACKWARD);
+		forward.setCost(origin, 0.0, -1);
+		forward.heap.offer(origin, 0.0);
+		backward.setCost(destination, 0.0, -1);
+		backward.heap.offer(destination, 0.0);
+
+		double bestCost = Double.MAX_VALUE;
+		int meetingNode = -1;
+		while (true) {
+			boolean forwardOpen = !forward.heap.isEmpty() && forward.heap.peekKey() < bestCost;
+			boolean backwardOpen = !backward.heap.isEmpty() && backward.heap.peekKey() < bestCost;
+			if (!forwardOpen && !backwardOpen)
+				break;
+
+			boolean expandForward = forwardOpen && (!backwardOpen || forward.heap.peekKey() <= backward.heap.peekKey());
+			SearchWorkspace frontier = expandForward ? forward : backward;
+			SearchWorkspace opposite = expandForward ? backward : forward;
+
+			int current = frontier.heap.poll();
+			frontier.settle(current);
+			double currentCost = frontier.getCost(current);
+			if (opposite.isReached(current) && currentCost + opposite.getCost(current) < bestCost) {
+				bestCost = currentCost + opposite.getCost(current);
+				meetingNode = current;
+			}
+
+			for (int arc = upFirstArc[current]; arc < upFirstArc[current + 1]; arc++) {
+				int target = upArcTarget[arc];
+				double cost = currentCost + upArcWeight[arc];
+				if (cost < frontier.getCost(target)) {
+					frontier.setCost(target, cost, arc);
+					frontier.heap.offer(target, cost);
+				}
+			}
+		}
+
+		if (meetingNode == -1)
+			return directedEdgesSequence;
+
+		// from the origin up to the meeting node
+		List<Integer> upwardArcs = new ArrayList<>();
+		for (int arc = forward.getPredecessorArc(meetingNode); arc != -1; arc = forward
+				.getPredecessorArc(upArcSource[arc]))
+			upwardArcs.add(arc);
+		Collections.reverse(upwardArcs);
+		for (int arc : upwardArcs)
+			unpack(upArcEdge[arc], upArcSource[arc], directedEdgesSequence);
+
+		// from the meeting node down to the destination
+		for (int arc = backward.getPredecessorArc(meetingNode); arc != -1; arc = backward
+				.getPredecessorArc(upArcSource[arc]))
+			unpack(upArcEdge[arc], upArcTarget[arc], directedEdgesSequence);
+
+		return directedEdgesSequence;
+	}
+
+	/**
+	 * Appends the directed edges represented by a hierarchy edge, walked from the given endpoint, to the sequence.
+	 *
+	 * @param edge                  The hierarchy edge.
+	 * @param from                  The endpoint the edge is walked from.
+	 * @param directedEdgesSequence The sequence the directed edges are appended to.
+	 */
+	private void unpack(int edge, int from, List<DirectedEdge> directedEdgesSequence) {
+
+		int middle = chEdgeMiddle[edge];
+		if (middle == -1) {
+			int to = otherEndpoint(edge, from);
+			for (int arc = graph.firstArc[from]; arc < graph.firstArc[from + 1]; arc++)
+				if (graph.arcEdge[arc] == chEdgeOriginal[edge] && graph.arcTarget[arc] == to) {
+					directedEdgesSequence.add(graph.arcDirectedEdge[arc]);
+					return;
+				}
+			return;
+		}
+
+		// the first child joins chEdgeFrom and the middle node, the second one the middle node and chEdgeTo
+		if (from == chEdgeFrom[edge]) {
+			unpack(chEdgeFirstChild[edge], from, directedEdgesSequence);
+			unpack(chEdgeSecondChild[edge], middle, directedEdgesSequence);
+		} else {
+			unpack(chEdgeSecondChild[edge], from, directedEdgesSequence);
+			unpack(chEdgeFirstChild[edge], middle, directedEdgesSequence);
+		}
+	}
+
+	/**
+	 * Adds a hierarchy edge.
+	 *
+	 * @param from        The first endpoint.
+	 * @param to          The second endpoint.
+	 * @param weight      The weight of the edge.
+	 * @param middle      The contracted node a shortcut bypasses, -1 for original edges.
+	 * @param firstChild  The edge between {@code from} and {@code middle}, for shortcuts.
+	 * @param secondChild The edge between {@code middle} and {@code to}, for shortcuts.
+	 * @param original    The compact graph edge index, for original edges.
+	 */
+	private void addEdge(int from, int to, double weight, int middle, int firstChild, int secondChild, int original) {
+
+		if (chEdgeCount == chEdgeFrom.length) {
+			int capacity = chEdgeCount * 2;
+			chEdgeFrom = Arrays.copyOf(chEdgeFrom, capacity);
+			chEdgeTo = Arrays.copyOf(chEdgeTo, capacity);
+			chEdgeWeight = Arrays.copyOf(chEdgeWeight, capacity);
+			chEdgeMiddle = Arrays.copyOf(chEdgeMiddle, capacity);
+			chEdgeFirstChild = Arrays.copyOf(chEdgeFirstChild, capacity);
+			chEdgeSecondChild = Arrays.copyOf(chEdgeSecondChild, capacity);
+			chEdgeOriginal = Arrays.copyOf(chEdgeOriginal, capacity);
+		}
+
+		int edge = chEdgeCount++;
+		chEdgeFrom[edge] = from;
+		chEdgeTo[edge] = to;
+		chEdgeWeight[edge] = weight;
+		chEdgeMiddle[edge] = middle;
+		chEdgeFirstChild[edge] = firstChild;
+		chEdgeSecondChild[edge] = secondChild;
+		chEdgeOriginal[edge] = original;
+		addToAdjacency(from, edge);
+		addToAdjacency(to, edge);
+	}
+
+	private void addToAdjacency(int node, int edge) {
+		if (adjacencySize[node] == adjacency[node].length)
+			adjacency[node] = Arrays.copyOf(adjacency[node], adjacency[node].length * 2);
+		adjacency[node][adjacencySize[node]++] = edge;
+	}
+
+	private int otherEndpoint(int edge, int node) {
+		return chEdgeFrom[edge] == node ? chEdgeTo[edge] : chEdgeFrom[edge];
+	}
+
+	private int lowerEndpoint(int edge) {
+		return rank[chEdgeFrom[edge]] < rank[chEdgeTo[edge]] ? chEdgeFrom[edge] : chEdgeTo[edge];
+	}
+
+	private static int indexOf(int[] values, int size, int value) {
+		for (int i = 0; i < size; i++)
+			if (values[i] == value)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Returns the number of shortcuts added by the contraction.
+	 *
+	 * @return The number of shortcuts.
+	 */
+	public int getShortcutCount() {
+		int shortcuts = 0;
+		for (int edge = 0; edge < chEdgeCount; edge++)
+			if (chEdgeMiddle[edge] != -1)
+				shortcuts++;
+		return shortcuts;
+	}
+}
@@ -1,21 +1,18 @@
 package pedSim.dijkstra;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Set;
 
 import org.locationtech.jts.planargraph.DirectedEdge;
 
 import pedSim.agents.Agent;
 import pedSim.agents.AgentProperties;
 import pedSim.cognitiveMap.CommunityCognitiveMap;
+import pedSim.engine.PedSimCity;
 import pedSim.parameters.RouteChoicePars;
-import sim.graph.EdgeGraph;
 import sim.graph.Graph;
 import sim.graph.NodeGraph;
-import sim.routing.NodeWrapper;
 import sim.routing.Route;
 import sim.util.geo.Utilities;
 
@@ -26,15 +23,21 @@ import sim.util.geo.Utilities;
 public class Dijkstra {
 
 	NodeGraph originNode, destinationNode;
-	protected Set<NodeGraph> visitedNodes;
-	protected PriorityQueue<NodeGraph> unvisitedNodes;
-	Map<NodeGraph, NodeWrapper> nodeWrappersMap = new HashMap<>();
+	int origin, destination;
+	protected SearchWorkspace workspace;
+	protected IndexedHeap unvisitedNodes;
 
 	AgentProperties properties;
 	double tentativeCost;
 
 	protected boolean secondAttempt;
+	protected boolean pointToPoint = true;
+	protected boolean goalDirected = true;
+	protected AltLandmarks altLandmarks;
+	protected float[] destinationDistances;
+	protected int expandedNodes;
 	protected Graph agentNetwork;
+	protected CompactGraph graph;
 
 	Agent agent;
 	Route route = new Route();
@@ -45,8 +48,8 @@ public class Dijkstra {
 	/**
 	 * Initialises the Dijkstra algorithm, setting up the origin and destination nodes and preparing the network for traversal.
 	 * 
-	 * This method clears any previous state, assigns the relevant nodes (origin and destination), and retrieves the agent's properties and the network
-	 * from the cognitive map.
+	 * This method resets the calling thread's search workspace, assigns the relevant nodes (origin and destination), and retrieves the agent's
+	 * properties and the network from the cognitive map.
 	 *
 	 * @param originNode      The starting node from which the journey begins.
 	 * @param destinationNode The target node to which the agent is heading.
@@ -54,12 +57,78 @@ public class Dijkstra {
 	 */
 	protected void initialise(NodeGraph originNode, NodeGraph destinationNode, Agent agent) {
 
-		nodeWrappersMap.clear();
 		this.agentNetwork = CommunityCognitiveMap.getNetwork();
+		this.graph = PedSimCity.compactNetwork;
 		this.agent = agent;
 		this.properties = agent.getProperties();
 		this.originNode = originNode;
 		this.destinationNode = destinationNode;
+		this.origin = graph.nodeIndex(originNode);
+		this.destination = graph.nodeIndex(destinationNode);
+		this.expandedNodes = 0;
+		this.workspace = SearchWorkspace.get();
+		this.unvisitedNodes = workspace.heap;
+		initialiseHeuristic();
+		workspace.setCost(origin, 0.0, -1);
+		unvisitedNodes.offer(origin, heuristic(origin));
+	}
+
+	/**
+	 * Sets up the ALT heuristic for the query, when the landmark tables are available and the search is
+	 * goal-directed and point-to-point. The landmark tables are computed on lower-bound edge weights, so that the
+	 * heuristic never overestimates the perceived cost of a route.
+	 */
+	private void initialiseHeuristic() {
+
+		altLandmarks = goalDirected && pointToPoint ? PedSimCity.altLandmarks : null;
+		if (altLandmarks == null)
+			return;
+
+		if (destinationDistances == null || destinationDistances.length != altLandmarks.count)
+			destinationDistances = new float[altLandmarks.count];
+		altLandmarks.distancesTo(destination, destinationDistances);
+	}
+
+	/**
+	 * Returns the estimate of the remaining cost from the given node to the destination node; zero when the search is
+	 * not goal-directed.
+	 *
+	 * @param node The node index.
+	 * @return An admissible estimate of the cost to the destination.
+	 */
+	protected double heuristic(int node) {
+		if (altLandmarks == null)
+			return 0.0;
+		return altLandmarks.lowerBound(node, destinationDistances);
+	}
+
+	/**
+	 * Sets whether the search stops as soon as the destination node is settled (point-to-point mode, the default) or
+	 * keeps exploring the whole network.
+	 *
+	 * @param pointToPoint true to stop the search when the destination is settled.
+	 */
+	public void setPointToPoint(boolean pointToPoint) {
+		this.pointToPoint = pointToPoint;
+	}
+
+	/**
+	 * Sets whether the search is guided towards the destination by the ALT heuristic (the default), when the landmark
+	 * tables have been computed. Only point-to-point searches are goal-directed.
+	 *
+	 * @param goalDirected true to use the ALT heuristic.
+	 */
+	public void setGoalDirected(boolean goalDirected) {
+		this.goalDirected = goalDirected;
+	}
+
+	/**
+	 * Returns the number of nodes settled and expanded by the last search.
+	 *
+	 * @return The number of expanded nodes.
+	 */
+	public int getExpandedNodes() {
+		return expandedNodes;
 	}
 
 	/**
@@ -67,63 +136,87 @@ public class Dijkstra {
 	 * 
 	 * The method returns a value representing how much the agent perceives the cost of traversing a specific edge. It takes into account the time of day
 	 * (i.e., whether it's night) and the presence of positive barriers (such as natural barriers). The error is adjusted based on a distribution with
-	 * different parameters depending on the circumstances.
+	 * different parameters depending on the circumstances. When the ALT heuristic is used, the multipliers are bounded from below (see
+	 * {@code RouteChoicePars}), so that the heuristic stays admissible.
 	 *
-	 * @param targetNode The target node for cost calculation (not used in the current implementation).
-	 * @param commonEdge The edge used in the cost calculation.
+	 * @param edge The index, in the compact graph, of the edge used in the cost calculation.
 	 * @return The computed cost perception error, which may vary depending on barriers and time of day.
 	 */
-	protected double costPerceptionError(NodeGraph targetNode, EdgeGraph commonEdge) {
+	protected double costPerceptionError(int edge) {
 
 		// avoid parks/rivers at night
-		if (agent.getState().isDark)
-			return Utilities.fromDistribution(1.0, 0.10, null);
 		double error = Utilities.fromDistribution(1.0, 0.10, null);
+		if (RouteChoicePars.useALT)
+			error = Math.max(RouteChoicePars.minBaseCostPerceptionError, error);
+		if (agent.getState().isDark)
+			return error;
 
-		List<Integer> pBarriers = commonEdge.attributes.get("positiveBarriers").getArray();
-		if (!pBarriers.isEmpty())
-			error = Utilities.fromDistribution(RouteChoicePars.naturalBarriers, RouteChoicePars.naturalBarriersSD,
-					"left");
-
+		if (graph.edgePositiveBarrier[edge]) {
+			error = Utilities.fromDistribution(RouteChoicePars.naturalBarriers, RouteChoicePars.naturalBarriersSD, "left");
+			if (RouteChoicePars.useALT)
+				error = Math.max(RouteChoicePars.minCostPerceptionError, error);
+		}
 		return error;
 	}
 
 	/**
-	 * Computes the tentative cost for a given currentNode and targetNode with the specified edgeCost.
+	 * Computes the tentative cost for a given current node and target node with the specified edgeCost.
 	 *
-	 * @param currentNode The current node.
-	 * @param targetNode  The target node.
-	 * @param edgeCost    The cost of the edge between the current and target nodes.
+	 * @param current  The index of the current node.
+	 * @param target   The index of the target node.
+	 * @param edgeCost The cost of the edge between the current and target nodes.
 	 */
-	protected void computeTentativeCost(NodeGraph currentNode, NodeGraph targetNode, double edgeCost) {
-		tentativeCost = getBest(currentNode) + edgeCost;
+	protected void computeTentativeCost(int current, int target, double edgeCost) {
+		tentativeCost = getBest(current) + edgeCost;
 	}
 
 	/**
-	 * Checks if the tentative cost is the best for the currentNode and targetNode with the specified outEdge.
+	 * Checks if the tentative cost is the best for the target node. If so, the target node is queued through the given
+	 * arc, or its key decreased if it is already queued. The key includes the heuristic estimate, when goal-directed.
 	 *
-	 * @param currentNode The current node.
-	 * @param targetNode  The target node.
-	 * @param outEdge     The directed edge from the current node to the target node.
+	 * @param target The index of the target node in the compact graph.
+	 * @param arc    The arc from the current node to the target node.
 	 */
-	protected void isBest(NodeGraph currentNode, NodeGraph targetNode, DirectedEdge outEdge) {
-		if (getBest(targetNode) > tentativeCost) {
-			NodeWrapper nodeWrapper = nodeWrappersMap.computeIfAbsent(targetNode, NodeWrapper::new);
-			nodeWrapper.nodeFrom = currentNode;
-			nodeWrapper.directedEdgeFrom = outEdge;
-			nodeWrapper.gx = tentativeCost;
-			unvisitedNodes.add(targetNode);
+	protected void isBest(int target, int arc) {
+		if (getBest(target) > tentativeCost) {
+			workspace.setCost(target, tentativeCost, arc);
+			unvisitedNodes.offer(target, tentativeCost + heuristic(target));
 		}
 	}
 
 	/**
-	 * Retrieves the best value for the specified targetNode from the nodeWrappersMap.
+	 * Retrieves the best cost found so far for the specified node.
 	 *
-	 * @param targetNode The target node.
-	 * @return The best value for the target node.
+	 * @param node The index of the node.
+	 * @return The best value for the node.
 	 */
-	protected double getBest(NodeGraph targetNode) {
-		NodeWrapper nodeWrapper = nodeWrappersMap.get(targetNode);
-		return nodeWrapper != null ? nodeWrapper.gx : Double.MAX_VALUE;
+	protected double getBest(int node) {
+		return workspace.getCost(node);
+	}
+
+	/**
+	 * Reconstructs the sequence of directed edges composing the path, following the predecessor arcs back from the
+	 * destination node.
+	 *
+	 * @return A List of DirectedEdges representing the path sequence; empty if the destination has not been reached
+	 *         or coincides with the origin.
+	 */
+	protected List<DirectedEdge> reconstructSequence() {
+		List<DirectedEdge> directedEdgesSequence = new ArrayList<>();
+
+		// Check that the route has been formulated properly
+		// No route
+		if (!workspace.isReached(destination) || destination == origin)
+			return directedEdgesSequence;
+
+		int step = destination;
+		int arc = workspace.getPredecessorArc(step);
+		while (arc != -1) {
+			directedEdgesSequence.add(graph.arcDirectedEdge[arc]);
+			step = graph.arcSource[arc];
+			arc = workspace.getPredecessorArc(step);
+		}
+		Collections.reverse(directedEdgesSequence);
+		return directedEdgesSequence;
 	}
 }
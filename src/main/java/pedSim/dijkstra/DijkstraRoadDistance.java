@@ -1,18 +1,12 @@
 
 package pedSim.dijkstra;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import org.locationtech.jts.planargraph.DirectedEdge;
 
 import pedSim.agents.Agent;
-import sim.graph.EdgeGraph;
 import sim.graph.NodeGraph;
-import sim.routing.NodeWrapper;
 
 /**
  * The class allows computing the road distance shortest route by employing the Dijkstra shortest-path algorithm on a
@@ -37,74 +31,46 @@ public class DijkstraRoadDistance extends Dijkstra {
 	public List<DirectedEdge> dijkstraAlgorithm(NodeGraph originNode, NodeGraph destinationNode, Agent agent) {
 
 		initialise(originNode, destinationNode, agent);
-		visitedNodes = new HashSet<>();
-		unvisitedNodes = new PriorityQueue<>(Comparator.comparingDouble(this::getBest));
-		unvisitedNodes.add(this.originNode);
-
-		// NodeWrapper = container for the metainformation about a Node
-		NodeWrapper nodeWrapper = new NodeWrapper(originNode);
-		nodeWrapper.gx = 0.0;
-		nodeWrappersMap.put(originNode, nodeWrapper);
 		runDijkstra();
 
 		return reconstructSequence();
 	}
 
 	/**
-	 * Runs the Dijkstra algorithm to find the shortest path.
+	 * Runs the Dijkstra algorithm to find the shortest path. Each node is queued at most once and, in point-to-point
+	 * mode, the search stops as soon as the destination node is settled.
 	 */
 	private void runDijkstra() {
 		while (!unvisitedNodes.isEmpty()) {
-			NodeGraph currentNode = unvisitedNodes.poll();
-			visitedNodes.add(currentNode);
-			findMinDistances(currentNode);
+			int current = unvisitedNodes.poll();
+			if (!workspace.settle(current))
+				continue;
+			if (pointToPoint && current == destination)
+				break;
+			expandedNodes++;
+			findMinDistances(current);
 		}
 	}
 
 	/**
 	 * Finds the minimum distances for adjacent nodes of the given current node in the primal graph.
 	 *
-	 * @param currentNode The current node in the primal graph for which to find adjacent nodes.
+	 * @param current The index of the current node in the primal graph for which to find adjacent nodes.
 	 */
-	private void findMinDistances(NodeGraph currentNode) {
+	private void findMinDistances(int current) {
 
-		List<NodeGraph> adjacentNodes = currentNode.getAdjacentNodes();
-		for (NodeGraph targetNode : adjacentNodes) {
+		for (int arc = graph.firstArc[current]; arc < graph.firstArc[current + 1]; arc++) {
 
-			if (visitedNodes.contains(targetNode))
+			int target = graph.arcTarget[arc];
+			if (workspace.isSettled(target))
 				continue;
 
-			EdgeGraph commonEdge = agentNetwork.getEdgeBetween(currentNode, targetNode);
-			DirectedEdge outEdge = agentNetwork.getDirectedEdgeBetween(currentNode, targetNode);
+			int edge = graph.arcEdge[arc];
 			tentativeCost = 0.0;
-			double error = costPerceptionError(targetNode, commonEdge);
-			double edgeCost = commonEdge.getLength() * error;
-			computeTentativeCost(currentNode, targetNode, edgeCost);
-			isBest(currentNode, targetNode, outEdge);
+			double error = costPerceptionError(edge);
+			double edgeCost = graph.edgeLength[edge] * error;
+			computeTentativeCost(current, target, edgeCost);
+			isBest(target, arc);
 		}
 	}
-
-	/**
-	 * Reconstructs the sequence of directed edges composing the path.
-	 *
-	 * @return An ArrayList of DirectedEdges representing the path sequence.
-	 */
-	private List<DirectedEdge> reconstructSequence() {
-		List<DirectedEdge> directedEdgesSequence = new ArrayList<>();
-		NodeGraph step = destinationNode;
-
-		// Check that the route has been formulated properly
-		// No route
-		if (nodeWrappersMap.get(destinationNode) == null || nodeWrappersMap.size() <= 1) {
-			directedEdgesSequence.clear();
-		} else
-			while (nodeWrappersMap.get(step).nodeFrom != null) {
-				DirectedEdge directedEdge;
-				directedEdge = nodeWrappersMap.get(step).directedEdgeFrom;
-				step = nodeWrappersMap.get(step).nodeFrom;
-				directedEdgesSequence.add(0, directedEdge);
-			}
-
-		return directedEdgesSequence;
-	}
 }
@@ -0,0 +1,163 @@
+package pedSim.dijkstra;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.agents.Agent;
+import sim.graph.NodeGraph;
+
+/**
+ * The class allows computing the road distance shortest route by employing a bidirectional Dijkstra search on the
+ * compact primal graph of the street network: one frontier grows from the origin, the other one from the destination,
+ * and the search stops as soon as no path through the unsettled nodes can be shorter than the best path found where
+ * the two frontiers meet.
+ *
+ * The cost of each edge (its length times the agent's perception error) is drawn once per query and shared by the two
+ * frontiers, so that, for a given perception of the edges, the route is the same one found by
+ * {@link DijkstraRoadDistance}. The search is inherently point-to-point.
+ **/
+public class DijkstraRoadDistanceBidirectional extends Dijkstra {
+
+	private SearchWorkspace backwardWorkspace;
+	private IndexedHeap backwardNodes;
+
+	private double bestCost;
+	private int meetingNode;
+
+	/**
+	 * Performs the bidirectional Dijkstra's algorithm to find the shortest path from the origin node to the destination
+	 * node.
+	 *
+	 * @param originNode      The starting node for the path.
+	 * @param destinationNode The destination node to reach.
+	 * @param agent           The agent for which the route is computed.
+	 *
+	 * @return An ArrayList of DirectedEdges representing the shortest path from the origin to the destination.
+	 */
+	public List<DirectedEdge> dijkstraAlgorithm(NodeGraph originNode, NodeGraph destinationNode, Agent agent) {
+
+		// the stopping criterion relies on the plain costs of the two frontiers
+		goalDirected = false;
+		initialise(originNode, destinationNode, agent);
+		backwardWorkspace = SearchWorkspace.get(SearchWorkspace.BACKWARD);
+		backwardNodes = backwardWorkspace.heap;
+		backwardWorkspace.setCost(destination, 0.0, -1);
+		backwardNodes.offer(destination, 0.0);
+
+		bestCost = Double.MAX_VALUE;
+		meetingNode = -1;
+		updateMeetingNode(origin);
+		runDijkstra();
+
+		return reconstructSequence();
+	}
+
+	/**
+	 * Runs the two searches, always expanding the frontier with the lowest key, until the sum of the two lowest keys
+	 * is not lower than the cost of the best path found.
+	 */
+	private void runDijkstra() {
+		while (!unvisitedNodes.isEmpty() && !backwardNodes.isEmpty()) {
+			if (unvisitedNodes.peekKey() + backwardNodes.peekKey() >= bestCost)
+				break;
+			if (unvisitedNodes.peekKey() <= backwardNodes.peekKey())
+				expand(workspace, backwardWorkspace);
+			else
+				expand(backwardWorkspace, workspace);
+		}
+	}
+
+	/**
+	 * Settles the node with the lowest key in the given frontier and relaxes its arcs.
+	 *
+	 * @param frontier The workspace of the frontier to expand.
+	 * @param opposite The workspace of the other frontier.
+	 */
+	private void expand(SearchWorkspace frontier, SearchWorkspace opposite) {
+
+		int current = frontier.heap.poll();
+		frontier.settle(current);
+		expandedNodes++;
+		double currentCost = frontier.getCost(current);
+
+		for (int arc = graph.firstArc[current]; arc < graph.firstArc[current + 1]; arc++) {
+
+			int target = graph.arcTarget[arc];
+			if (frontier.isSettled(target))
+				continue;
+
+			tentativeCost = currentCost + edgeCost(graph.arcEdge[arc]);
+			if (frontier.getCost(target) > tentativeCost) {
+				frontier.setCost(target, tentativeCost, arc);
+				frontier.heap.offer(target, tentativeCost);
+				if (opposite.isReached(target))
+					updateMeetingNode(target);
+			}
+		}
+	}
+
+	/**
+	 * Returns the cost of an edge for the current query: its length times the agent's perception error, drawn the first
+	 * time the edge is relaxed by either frontier.
+	 *
+	 * @param edge The edge index.
+	 * @return The perceived cost of the edge.
+	 */
+	private double edgeCost(int edge) {
+
+		double edgeCost = workspace.getEdgeCost(edge);
+		if (Double.isNaN(edgeCost)) {
+			edgeCost = graph.edgeLength[edge] * costPerceptionError(edge);
+			workspace.setEdgeCost(edge, edgeCost);
+		}
+		return edgeCost;
+	}
+
+	/**
+	 * Updates the best path found, if the path through the given node, reached by both frontiers, is shorter.
+	 *
+	 * @param node The node index.
+	 */
+	private void updateMeetingNode(int node) {
+
+		double cost = workspace.getCost(node) + backwardWorkspace.getCost(node);
+		if (cost < bestCost) {
+			bestCost = cost;
+			meetingNode = node;
+		}
+	}
+
+	/**
+	 * Reconstructs the sequence of directed edges composing the path, joining the forward path from the origin to the
+	 * meeting node with the backward path from the meeting node to the destination.
+	 *
+	 * @return A List of DirectedEdges representing the path sequence; empty if the destination cannot be reached or
+	 *         coincides with the origin.
+	 */
+	@Override
+	protected List<DirectedEdge> reconstructSequence() {
+		List<DirectedEdge> directedEdgesSequence = new ArrayList<>();
+
+		// No route
+		if (meetingNode == -1 || destination == origin)
+			return directedEdgesSequence;
+
+		int arc = workspace.getPredecessorArc(meetingNode);
+		while (arc != -1) {
+			directedEdgesSequence.add(graph.arcDirectedEdge[arc]);
+			arc = workspace.getPredecessorArc(graph.arcSource[arc]);
+		}
+		Collections.reverse(directedEdgesSequence);
+
+		// the backward arcs point towards the meeting node, the route walks them in the opposite direction
+		arc = backwardWorkspace.getPredecessorArc(meetingNode);
+		while (arc != -1) {
+			directedEdgesSequence.add(graph.arcDirectedEdge[arc].getSym());
+			arc = backwardWorkspace.getPredecessorArc(graph.arcSource[arc]);
+		}
+		return directedEdgesSequence;
+	}
+}
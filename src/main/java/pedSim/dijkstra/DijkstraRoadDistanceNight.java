@@ -1,22 +1,14 @@
 
 package pedSim.dijkstra;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.locationtech.jts.planargraph.DirectedEdge;
 
 import pedSim.agents.Agent;
 import pedSim.cognitiveMap.CommunityCognitiveMap;
 import pedSim.utilities.StringEnum.Vulnerable;
-import sim.graph.EdgeGraph;
 import sim.graph.NodeGraph;
-import sim.routing.NodeWrapper;
 
 /**
  * The class allows computing the road distance shortest route by employing the Dijkstra shortest-path algorithm on a
@@ -26,8 +18,6 @@ import sim.routing.NodeWrapper;
  **/
 public class DijkstraRoadDistanceNight extends Dijkstra {
 
-	public Set<NodeGraph> disregardedNodes = new HashSet<>();
-
 	/**
 	 * Performs the Dijkstra's algorithm to find the shortest path from the origin node to the destination node.
 	 *
@@ -42,63 +32,62 @@ public class DijkstraRoadDistanceNight extends Dijkstra {
 	public List<DirectedEdge> dijkstraAlgorithm(NodeGraph originNode, NodeGraph destinationNode, Agent agent) {
 
 		initialise(originNode, destinationNode, agent);
-		visitedNodes = new HashSet<>();
-		unvisitedNodes = new PriorityQueue<>(Comparator.comparingDouble(this::getBest));
-		unvisitedNodes.add(this.originNode);
-
-		// NodeWrapper = container for the metainformation about a Node
-		NodeWrapper nodeWrapper = new NodeWrapper(originNode);
-		nodeWrapper.gx = 0.0;
-		nodeWrappersMap.put(originNode, nodeWrapper);
 		runDijkstra();
 
 		return reconstructSequence();
 	}
 
 	/**
-	 * Runs the Dijkstra algorithm to find the shortest path.
+	 * Runs the Dijkstra algorithm to find the shortest path. Each node is queued at most once and, in point-to-point
+	 * mode, the search stops as soon as the destination node is settled.
 	 */
 	private void runDijkstra() {
 		while (!unvisitedNodes.isEmpty()) {
-			NodeGraph currentNode = unvisitedNodes.poll();
-			findMinDistances(currentNode);
+			int current = unvisitedNodes.poll();
+			if (!workspace.settle(current))
+				continue;
+			if (pointToPoint && current == destination)
+				break;
+			expandedNodes++;
+			findMinDistances(current);
 		}
 	}
 
 	/**
 	 * Finds the minimum distances for adjacent nodes of the given current node in the primal graph.
 	 *
-	 * @param currentNode The current node in the primal graph for which to find adjacent nodes.
+	 * @param current The index of the current node in the primal graph for which to find adjacent nodes.
 	 */
-	private void findMinDistances(NodeGraph currentNode) {
-
-		List<NodeGraph> adjacentNodes = currentNode.getAdjacentNodes();
-		List<NodeGraph> validNeighbors;
-
-		if (!secondAttempt) {
-			validNeighbors = adjacentNodes.stream().filter(targetNode -> {
-				EdgeGraph edge = agentNetwork.getEdgeBetween(currentNode, targetNode);
-				return (agent.vulnerable == Vulnerable.NON_VULNERABLE || !shouldAvoidEdgeAtNight(edge, secondAttempt))
-						&& !disregardedNodes.contains(targetNode); // Exclude disregarded nodes
-			}).collect(Collectors.toList());
-
-			if (validNeighbors.isEmpty()) {
-				// Flag currentNode as "dead-end"
-				disregardedNodes.add(currentNode);
-				return;
+	private void findMinDistances(int current) {
+
+		int validNeighbours = 0;
+
+		for (int arc = graph.firstArc[current]; arc < graph.firstArc[current + 1]; arc++) {
+			int target = graph.arcTarget[arc];
+			int edge = graph.arcEdge[arc];
+
+			if (!secondAttempt) {
+				// Exclude disregarded (marked) nodes
+				boolean isValid = (agent.vulnerable == Vulnerable.NON_VULNERABLE
+						|| !shouldAvoidEdgeAtNight(edge, secondAttempt)) && !workspace.isMarked(target);
+				if (!isValid)
+					continue;
 			}
-		} else
-			validNeighbors = adjacentNodes;
 
-		for (NodeGraph targetNode : validNeighbors) {
-			EdgeGraph commonEdge = agentNetwork.getEdgeBetween(currentNode, targetNode);
-			DirectedEdge outEdge = agentNetwork.getDirectedEdgeBetween(currentNode, targetNode);
+			validNeighbours++;
+			if (workspace.isSettled(target))
+				continue;
+
 			tentativeCost = 0.0;
-			double error = costPerceptionError(targetNode, commonEdge);
-			double edgeCost = commonEdge.getLength() * error;
-			computeTentativeCost(currentNode, targetNode, edgeCost);
-			isBest(currentNode, targetNode, outEdge);
+			double error = costPerceptionError(edge);
+			double edgeCost = graph.edgeLength[edge] * error;
+			computeTentativeCost(current, target, edgeCost);
+			isBest(target, arc);
 		}
+
+		// Flag currentNode as "dead-end"
+		if (!secondAttempt && validNeighbours == 0)
+			workspace.mark(current);
 	}
 
 	/**
@@ -115,49 +104,37 @@ public class DijkstraRoadDistanceNight extends Dijkstra {
 	 * setting `secondAttempt` to true allows the agent to consider edges that it would otherwise avoid, such as edges
 	 * in unknown regions or near parks/water.
 	 *
-	 * @param edge          The edge to evaluate for avoidance.
+	 * @param edge          The index, in the compact graph, of the edge to evaluate for avoidance.
 	 * @param secondAttempt If true, the method applies a more lenient check on the edge characteristics (e.g., it may
 	 *                      allow edges in unknown regions or near parks/water). *
 	 * @return true if the agent should avoid the edge at night; false otherwise.
 	 */
-	protected boolean shouldAvoidEdgeAtNight(EdgeGraph edge, boolean secondAttempt) {
+	protected boolean shouldAvoidEdgeAtNight(int edge, boolean secondAttempt) {
 
 		// Avoid if the edge leads to the destination
-		if (edge.getNodes().contains(destinationNode))
+		if (graph.isIncident(edge, destination))
 			return false;
 
-		Integer regionID = edge.getRegionID();
+		int regionID = graph.edgeRegionID[edge];
 		boolean isRegionKnown = agent.getCognitiveMap().isRegionKnown(regionID)
 				|| CommunityCognitiveMap.isRegionKnownByCommunity(regionID);
 
 		// If the edge is in a park/water or if the region is unknown and it's not the second attempt, avoid it
-		if (CommunityCognitiveMap.getEdgesWithinParksOrAlongWater().contains(edge)
-				|| (!isRegionKnown && !secondAttempt))
+		if (graph.edgeParkOrWater[edge] || (!isRegionKnown && !secondAttempt))
 			return true;
 
 		return false;
 	}
 
 	/**
-	 * Reconstructs the sequence of directed edges composing the path.
+	 * Reconstructs the sequence of directed edges composing the path. When no path is found, the search is repeated
+	 * with relaxed avoidance criteria and, if that fails too, with no avoidance at all.
 	 *
-	 * @return An ArrayList of DirectedEdges representing the path sequence.
+	 * @return A List of DirectedEdges representing the path sequence.
 	 */
-	private List<DirectedEdge> reconstructSequence() {
-		List<DirectedEdge> directedEdgesSequence = new ArrayList<>();
-		NodeGraph step = destinationNode;
-
-		// Check that the route has been formulated properly
-		// No route
-		if (nodeWrappersMap.get(destinationNode) == null || nodeWrappersMap.size() <= 1)
-			directedEdgesSequence.clear();
-		else
-			while (nodeWrappersMap.get(step).nodeFrom != null) {
-				DirectedEdge directedEdge;
-				directedEdge = nodeWrappersMap.get(step).directedEdgeFrom;
-				step = nodeWrappersMap.get(step).nodeFrom;
-				directedEdgesSequence.add(0, directedEdge);
-			}
+	@Override
+	protected List<DirectedEdge> reconstructSequence() {
+		List<DirectedEdge> directedEdgesSequence = super.reconstructSequence();
 
 		// If the sequence is empty, attempt the second approach (dijkstraAlgorithm)
 		if (directedEdgesSequence.isEmpty()) {
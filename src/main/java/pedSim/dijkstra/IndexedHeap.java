@@ -0,0 +1,180 @@
+package pedSim.dijkstra;
+
+import java.util.Arrays;
+
+/**
+ * A primitive indexed d-ary min-heap of int node indexes keyed by double costs, supporting decrease-key.
+ *
+ * Each node appears in the heap at most once: offering a node that is already queued with a lower cost just moves it
+ * up the heap, rather than adding a duplicate entry. Keys are stored in a primitive array, so comparisons involve no
+ * lookups. The heap is meant to be reused across queries: {@link #clear()} only resets the nodes currently queued.
+ */
+public class IndexedHeap {
+
+	private static final int ARITY = 4;
+
+	private final int[] heap;
+	private final int[] positions;
+	private final double[] keys;
+	private int size;
+
+	/**
+	 * Creates a heap for node indexes in the range [0, capacity).
+	 *
+	 * @param capacity The number of nodes in the graph.
+	 */
+	public IndexedHeap(int capacity) {
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new double[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	/**
+	 * Returns the number of nodes the heap can hold.
+	 *
+	 * @return The capacity of the heap.
+	 */
+	public int capacity() {
+		return positions.length;
+	}
+
+	/**
+	 * Checks if the heap is empty.
+	 *
+	 * @return true if no node is queued.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Checks if the given node is queued.
+	 *
+	 * @param node The node index.
+	 * @return true if the node is in the heap.
+	 */
+	public boolean contains(int node) {
+		return positions[node] >= 0;
+	}
+
+	/**
+	 * Returns the cost the given node is queued with.
+	 *
+	 * @param node The node index; it must be in the heap.
+	 * @return The key of the node.
+	 */
+	public double getKey(int node) {
+		return keys[node];
+	}
+
+	/**
+	 * Returns the lowest key in the heap.
+	 *
+	 * @return The key of the node at the top of the heap, or {@code Double.MAX_VALUE} if the heap is empty.
+	 */
+	public double peekKey() {
+		return size > 0 ? keys[heap[0]] : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Queues the node with the given cost, or decreases its key if it is already queued with a higher cost.
+	 *
+	 * @param node The node index.
+	 * @param key  The cost of the node.
+	 * @return true if the node was inserted or its key decreased.
+	 */
+	public boolean offer(int node, double key) {
+
+		int position = positions[node];
+		if (position < 0) {
+			position = size++;
+			heap[position] = node;
+			positions[node] = position;
+		} else if (key >= keys[node])
+			return false;
+
+		keys[node] = key;
+		siftUp(position);
+		return true;
+	}
+
+	/**
+	 * Removes and returns the node with the lowest key.
+	 *
+	 * @return The node index, or -1 if the heap is empty.
+	 */
+	public int poll() {
+
+		if (size == 0)
+			return -1;
+
+		int top = heap[0];
+		positions[top] = -1;
+		size--;
+		if (size > 0) {
+			int last = heap[size];
+			heap[0] = last;
+			positions[last] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	/**
+	 * Removes all the queued nodes, in time proportional to their number.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			positions[heap[i]] = -1;
+		size = 0;
+	}
+
+	private void siftUp(int position) {
+
+		int node = heap[position];
+		double key = keys[node];
+		while (position > 0) {
+			int parentPosition = (position - 1) / ARITY;
+			int parent = heap[parentPosition];
+			if (keys[parent] <= key)
+				break;
+			heap[position] = parent;
+			positions[parent] = position;
+			position = parentPosition;
+		}
+		heap[position] = node;
+		positions[node] = position;
+	}
+
+	private void siftDown(int position) {
+
+		int node = heap[position];
+		double key = keys[node];
+		while (true) {
+			int firstChild = position * ARITY + 1;
+			if (firstChild >= size)
+				break;
+
+			int bestPosition = firstChild;
+			double bestKey = keys[heap[firstChild]];
+			int lastChild = Math.min(firstChild + ARITY, size);
+			for (int child = firstChild + 1; child < lastChild; child++) {
+				double childKey = keys[heap[child]];
+				if (childKey < bestKey) {
+					bestPosition = child;
+					bestKey = childKey;
+				}
+			}
+
+			if (bestKey >= key)
+				break;
+			int best = heap[bestPosition];
+			heap[position] = best;
+			positions[best] = position;
+			position = bestPosition;
+		}
+		heap[position] = node;
+		positions[node] = position;
+	}
+}
@@ -0,0 +1,238 @@
+package pedSim.dijkstra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.utilities.StringEnum.RoutingProfile;
+import sim.graph.NodeGraph;
+
+/**
+ * A two-level router based on the regions (districts) of the street network, for one {@link RoutingProfile}.
+ *
+ * The boundary nodes of each region, i.e. the endpoints of the gateway edges linking it to other regions, are connected
+ * by overlay edges weighted with the shortest distance between them within the region, precomputed once. A query
+ * expands in detail only the regions of the origin and of the destination; every other region is crossed through its
+ * overlay edges and left through its gateway edges, so long trips settle a small fraction of the nodes. The overlay
+ * edges used by the route are then unpacked by searching the corresponding region only.
+ */
+public class RegionalOverlay {
+
+	public final RoutingProfile profile;
+	private final CompactGraph graph;
+	private final double[] weights;
+
+	// index of each node among the boundary nodes, -1 for inner nodes
+	private final int[] boundaryIndex;
+
+	// overlay edges of boundary node b: [overlayFirst[b], overlayFirst[b + 1])
+	private final int[] overlayFirst;
+	private final int[] overlaySource;
+	private final int[] overlayTarget;
+	private final double[] overlayWeight;
+
+	/**
+	 * Builds the overlay of the given graph for the given profile. The nodes of the graph must have been assigned to
+	 * regions.
+	 *
+	 * @param graph   The compact graph.
+	 * @param profile The routing profile defining the edge weights.
+	 */
+	public RegionalOverlay(CompactGraph graph, RoutingProfile profile) {
+
+		this.graph = graph;
+		this.profile = profile;
+		weights = new double[graph.edgeCount];
+		for (int edge = 0; edge < graph.edgeCount; edge++)
+			weights[edge] = graph.weight(edge, profile);
+
+		// boundary nodes, by region
+		boundaryIndex = new int[graph.nodeCount];
+		Arrays.fill(boundaryIndex, -1);
+		List<Integer> boundaryNodes = new ArrayList<>();
+		Map<Integer, List<Integer>> boundaryNodesByRegion = new HashMap<>();
+		for (int edge = 0; edge < graph.edgeCount; edge++) {
+			int fromNode = graph.edgeFromNode[edge];
+			int toNode = graph.edgeToNode[edge];
+			if (graph.nodeRegionID[fromNode] == graph.nodeRegionID[toNode])
+				continue;
+			for (int node : new int[] { fromNode, toNode })
+				if (boundaryIndex[node] == -1) {
+					boundaryIndex[node] = boundaryNodes.size();
+					boundaryNodes.add(node);
+					boundaryNodesByRegion.computeIfAbsent(graph.nodeRegionID[node], region -> new ArrayList<>())
+							.add(node);
+				}
+		}
+
+		// overlay edges between the boundary nodes of each region
+		int boundaryCount = boundaryNodes.size();
+		overlayFirst = new int[boundaryCount + 1];
+		List<double[]> overlayEdges = new ArrayList<>();
+		SearchWorkspace workspace = new SearchWorkspace(graph);
+		for (int b = 0; b < boundaryCount; b++) {
+			int source = boundaryNodes.get(b);
+			List<Integer> regionBoundaryNodes = boundaryNodesByRegion.get(graph.nodeRegionID[source]);
+			regionSearch(workspace, source, -1);
+			for (int target : regionBoundaryNodes)
+				if (target != source && workspace.isReached(target))
+					overlayEdges.add(new double[] { source, target, workspace.getCost(target) });
+			overlayFirst[b + 1] = overlayEdges.size();
+		}
+
+		overlaySource = new int[overlayEdges.size()];
+		overlayTarget = new int[overlayEdges.size()];
+		overlayWeight = new double[overlayEdges.size()];
+		for (int i = 0; i < overlayEdges.size(); i++) {
+			double[] overlayEdge = overlayEdges.get(i);
+			overlaySource[i] = (int) overlayEdge[0];
+			overlayTarget[i] = (int) overlayEdge[1];
+			overlayWeight[i] = overlayEdge[2];
+		}
+	}
+
+	/**
+	 * Runs a Dijkstra search from the source node that does not leave the source node's region.
+	 *
+	 * @param workspace The workspace used by the search; it is reset.
+	 * @param source    The source node index.
+	 * @param target    The node index at which the search stops, -1 to explore the whole region.
+	 */
+	private void regionSearch(SearchWorkspace workspace, int source, int target) {
+
+		workspace.reset();
+		int region = graph.nodeRegionID[source];
+		IndexedHeap heap = workspace.heap;
+		workspace.setCost(source, 0.0, -1);
+		heap.offer(source, 0.0);
+
+		while (!heap.isEmpty()) {
+			int current = heap.poll();
+			workspace.settle(current);
+			if (current == target)
+				break;
+			double currentCost = workspace.getCost(current);
+			for (int arc = graph.firstArc[current]; arc < graph.firstArc[current + 1]; arc++) {
+				int next = graph.arcTarget[arc];
+				if (graph.nodeRegionID[next] != region || workspace.isSettled(next))
+					continue;
+				relax(workspace, next, currentCost + weights[graph.arcEdge[arc]], arc);
+			}
+		}
+	}
+
+	/**
+	 * Computes the shortest route between two nodes.
+	 *
+	 * @param originNode      The starting node for the path.
+	 * @param destinationNode The destination node to reach.
+	 * @return A List of DirectedEdges representing the shortest path; empty if the destination cannot be reached or
+	 *         coincides with the origin.
+	 */
+	public List<DirectedEdge> route(NodeGraph originNode, NodeGraph destinationNode) {
+
+		int origin = graph.nodeIndex(originNode);
+		int destination = graph.nodeIndex(destinationNode);
+		int originRegion = graph.nodeRegionID[origin];
+		int destinationRegion = graph.nodeRegionID[destination];
+		if (origin == destination)
+			return new ArrayList<>();
+
+		SearchWorkspace workspace = SearchWorkspace.get(SearchWorkspace.FORWARD);
+		IndexedHeap heap = workspace.heap;
+		workspace.setCost(origin, 0.0, -1);
+		heap.offer(origin, 0.0);
+
+		while (!heap.isEmpty()) {
+			int current = heap.poll();
+			workspace.settle(current);
+			if (current == destination)
+				break;
+
+			double currentCost = workspace.getCost(current);
+			int region = graph.nodeRegionID[current];
+			boolean detailed = region == originRegion || region == destinationRegion;
+
+			for (int arc = graph.firstArc[current]; arc < graph.firstArc[current + 1]; arc++) {
+				int next = graph.arcTarget[arc];
+				// other regions are only left through their gateway edges
+				if ((!detailed && graph.nodeRegionID[next] == region) || workspace.isSettled(next))
+					continue;
+				relax(workspace, next, currentCost + weights[graph.arcEdge[arc]], arc);
+			}
+
+			if (!detailed) {
+				int b = boundaryIndex[current];
+				for (int overlayEdge = overlayFirst[b]; overlayEdge < overlayFirst[b + 1]; overlayEdge++) {
+					int next = overlayTarget[overlayEdge];
+					if (!workspace.isSettled(next))
+						relax(workspace, next, currentCost + overlayWeight[overlayEdge], graph.arcCount + overlayEdge);
+				}
+			}
+		}
+
+		if (!workspace.isReached(destination))
+			return new ArrayList<>();
+		return unpack(workspace, destination);
+	}
+
+	/**
+	 * Reconstructs the route to the destination, replacing each overlay edge with the shortest path within its region.
+	 * Predecessors lower than {@code graph.arcCount} are arcs of the compact graph, the others overlay edges.
+	 *
+	 * @param workspace   The workspace of the query.
+	 * @param destination The destination node index.
+	 * @return A List of DirectedEdges representing the path sequence.
+	 */
+	private List<DirectedEdge> unpack(SearchWorkspace workspace, int destination) {
+
+		List<Integer> steps = new ArrayList<>();
+		int node = destination;
+		for (int step = workspace.getPredecessorArc(node); step != -1; step = workspace.getPredecessorArc(node)) {
+			steps.add(step);
+			node = step < graph.arcCount ? graph.arcSource[step] : overlaySource[step - graph.arcCount];
+		}
+		Collections.reverse(steps);
+
+		List<DirectedEdge> directedEdgesSequence = new ArrayList<>();
+		SearchWorkspace regionWorkspace = SearchWorkspace.get(SearchWorkspace.BACKWARD);
+		for (int step : steps) {
+			if (step < graph.arcCount) {
+				directedEdgesSequence.add(graph.arcDirectedEdge[step]);
+				continue;
+			}
+
+			int overlayEdge = step - graph.arcCount;
+			int target = overlayTarget[overlayEdge];
+			regionSearch(regionWorkspace, overlaySource[overlayEdge], target);
+			List<DirectedEdge> regionSequence = new ArrayList<>();
+			for (int arc = regionWorkspace.getPredecessorArc(target); arc != -1; arc = regionWorkspace
+					.getPredecessorArc(graph.arcSource[arc]))
+				regionSequence.add(graph.arcDirectedEdge[arc]);
+			Collections.reverse(regionSequence);
+			directedEdgesSequence.addAll(regionSequence);
+		}
+		return directedEdgesSequence;
+	}
+
+	private static void relax(SearchWorkspace workspace, int node, double cost, int predecessor) {
+		if (cost < workspace.getCost(node)) {
+			workspace.setCost(node, cost, predecessor);
+			workspace.heap.offer(node, cost);
+		}
+	}
+
+	/**
+	 * Returns the number of overlay edges.
+	 *
+	 * @return The number of overlay edges.
+	 */
+	public int getOverlayEdgeCount() {
+		return overlayTarget.length;
+	}
+}
@@ -0,0 +1,230 @@
+package pedSim.dijkstra;
+
+import java.util.Arrays;
+
+import pedSim.engine.PedSimCity;
+
+/**
+ * The mutable state of a shortest-path search over the {@link CompactGraph}: tentative costs, predecessor arcs, settled
+ * nodes, excluded edges and the queue of the nodes to visit.
+ *
+ * All the per-node and per-edge information is held in primitive arrays, stamped with the generation of the search that
+ * wrote it. Starting a new search only increments the generation, which invalidates all the previous entries at once,
+ * so a workspace can be reset in O(1) and reused by all the searches run by the same thread, without allocating maps,
+ * sets or wrappers per query. Workspaces are pooled per thread, see {@link #get()}; each thread holds a forward and a
+ * backward workspace, so that bidirectional searches can run both frontiers at once.
+ */
+public class SearchWorkspace {
+
+	/** The slot of the workspace used by unidirectional searches and by the forward frontier. */
+	public static final int FORWARD = 0;
+
+	/** The slot of the workspace used by the backward frontier of bidirectional searches. */
+	public static final int BACKWARD = 1;
+
+	// the workspaces of each thread, by slot, sized for the current compact graph
+	private static final ThreadLocal<SearchWorkspace[]> workspaces = ThreadLocal
+			.withInitial(() -> new SearchWorkspace[2]);
+
+	final CompactGraph graph;
+	final IndexedHeap heap;
+
+	private final double[] costs;
+	private final int[] predecessorArcs;
+	private final int[] reached;
+	private final int[] settled;
+	private final int[] marked;
+	private final int[] excludedEdges;
+	private final double[] edgeCosts;
+	private final int[] edgeCostsSet;
+	private int generation;
+
+	/**
+	 * Creates a workspace for searches over the given graph.
+	 *
+	 * @param graph The compact graph.
+	 */
+	SearchWorkspace(CompactGraph graph) {
+		this.graph = graph;
+		heap = new IndexedHeap(graph.nodeCount);
+		costs = new double[graph.nodeCount];
+		predecessorArcs = new int[graph.nodeCount];
+		reached = new int[graph.nodeCount];
+		settled = new int[graph.nodeCount];
+		marked = new int[graph.nodeCount];
+		excludedEdges = new int[graph.edgeCount];
+		edgeCosts = new double[graph.edgeCount];
+		edgeCostsSet = new int[graph.edgeCount];
+	}
+
+	/**
+	 * Returns the calling thread's forward workspace for the current {@code PedSimCity.compactNetwork}, reset and ready
+	 * for a new search.
+	 *
+	 * @return A reset workspace.
+	 */
+	public static SearchWorkspace get() {
+		return get(FORWARD);
+	}
+
+	/**
+	 * Returns the calling thread's workspace in the given slot for the current {@code PedSimCity.compactNetwork},
+	 * reset and ready for a new search.
+	 *
+	 * @param slot Either {@link #FORWARD} or {@link #BACKWARD}.
+	 * @return A reset workspace.
+	 */
+	public static SearchWorkspace get(int slot) {
+		SearchWorkspace[] threadWorkspaces = workspaces.get();
+		SearchWorkspace workspace = threadWorkspaces[slot];
+		if (workspace == null || workspace.graph != PedSimCity.compactNetwork) {
+			workspace = new SearchWorkspace(PedSimCity.compactNetwork);
+			threadWorkspaces[slot] = workspace;
+		}
+		workspace.reset();
+		return workspace;
+	}
+
+	/**
+	 * Invalidates all the information stored by the previous search.
+	 */
+	public void reset() {
+		generation++;
+		if (generation == Integer.MAX_VALUE) {
+			Arrays.fill(reached, 0);
+			Arrays.fill(settled, 0);
+			Arrays.fill(marked, 0);
+			Arrays.fill(excludedEdges, 0);
+			Arrays.fill(edgeCostsSet, 0);
+			generation = 1;
+		}
+		heap.clear();
+	}
+
+	/**
+	 * Returns the best cost found so far for the given node.
+	 *
+	 * @param node The node index.
+	 * @return The tentative cost of the node, or {@code Double.MAX_VALUE} if the node has not been reached.
+	 */
+	public double getCost(int node) {
+		return reached[node] == generation ? costs[node] : Double.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the arc through which the given node has been reached with its best cost.
+	 *
+	 * @param node The node index.
+	 * @return The predecessor arc, or -1 for the origin or for nodes that have not been reached.
+	 */
+	public int getPredecessorArc(int node) {
+		return reached[node] == generation ? predecessorArcs[node] : -1;
+	}
+
+	/**
+	 * Checks whether the given node has been reached.
+	 *
+	 * @param node The node index.
+	 * @return true if a cost has been set for the node.
+	 */
+	public boolean isReached(int node) {
+		return reached[node] == generation;
+	}
+
+	/**
+	 * Sets the cost of the given node and the arc it is reached through.
+	 *
+	 * @param node           The node index.
+	 * @param cost           The cost.
+	 * @param predecessorArc The arc through which the node is reached, -1 for the origin.
+	 */
+	public void setCost(int node, double cost, int predecessorArc) {
+		costs[node] = cost;
+		predecessorArcs[node] = predecessorArc;
+		reached[node] = generation;
+	}
+
+	/**
+	 * Checks whether the given node has been settled.
+	 *
+	 * @param node The node index.
+	 * @return true if the node has been settled.
+	 */
+	public boolean isSettled(int node) {
+		return settled[node] == generation;
+	}
+
+	/**
+	 * Marks the given node as settled.
+	 *
+	 * @param node The node index.
+	 * @return true if the node had not been settled yet.
+	 */
+	public boolean settle(int node) {
+		if (settled[node] == generation)
+			return false;
+		settled[node] = generation;
+		return true;
+	}
+
+	/**
+	 * Checks whether the given node has been marked. Marks are a general purpose per-node flag, e.g. the dead-end
+	 * nodes disregarded by the night router.
+	 *
+	 * @param node The node index.
+	 * @return true if the node has been marked.
+	 */
+	public boolean isMarked(int node) {
+		return marked[node] == generation;
+	}
+
+	/**
+	 * Marks the given node.
+	 *
+	 * @param node The node index.
+	 */
+	public void mark(int node) {
+		marked[node] = generation;
+	}
+
+	/**
+	 * Excludes the given edge from the search.
+	 *
+	 * @param edge The edge index.
+	 */
+	public void excludeEdge(int edge) {
+		excludedEdges[edge] = generation;
+	}
+
+	/**
+	 * Checks whether the given edge has been excluded from the search.
+	 *
+	 * @param edge The edge index.
+	 * @return true if the edge is excluded.
+	 */
+	public boolean isExcluded(int edge) {
+		return excludedEdges[edge] == generation;
+	}
+
+	/**
+	 * Returns the cost assigned to the given edge during the current search, see {@link #setEdgeCost(int, double)}.
+	 *
+	 * @param edge The edge index.
+	 * @return The cost of the edge, or {@code Double.NaN} if no cost has been assigned to it yet.
+	 */
+	public double getEdgeCost(int edge) {
+		return edgeCostsSet[edge] == generation ? edgeCosts[edge] : Double.NaN;
+	}
+
+	/**
+	 * Assigns a cost to the given edge for the rest of the current search, e.g. to keep the agent's perception of the
+	 * edge fixed when it is relaxed more than once.
+	 *
+	 * @param edge The edge index.
+	 * @param cost The cost of the edge.
+	 */
+	public void setEdgeCost(int edge, double cost) {
+		edgeCosts[edge] = cost;
+		edgeCostsSet[edge] = generation;
+	}
+}
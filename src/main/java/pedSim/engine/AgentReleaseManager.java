@@ -15,7 +15,6 @@ import pedSim.agents.Agent;
 import pedSim.parameters.RouteChoicePars;
 import pedSim.parameters.TimePars;
 import pedSim.utilities.LoggerUtil;
-import sim.util.geo.Utilities;
 
 /**
  * The AgentReleaseManager class handles the release of agents for the pedestrian simulation, distributing the total
@@ -26,7 +25,7 @@ public class AgentReleaseManager {
 	private static final Logger logger = LoggerUtil.getLogger();
 
 	private LocalDateTime currentTime;
-	Random random = new Random();
+	private final Random random;
 
 	private PedSimCity state;
 	private double kmCurrentDay;
@@ -41,6 +40,7 @@ public class AgentReleaseManager {
 	 */
 	public AgentReleaseManager(PedSimCity state, Double kmCurrentDay) {
 		this.state = state;
+		this.random = state.newRandom();
 		this.kmCurrentDay = kmCurrentDay;
 		System.out.println("kmExpectedTowalk day : " + kmCurrentDay / 1000);
 		resetKmWalkedSoFar();
@@ -116,7 +116,7 @@ public class AgentReleaseManager {
 
 		// Apply randomisation for variability (+/- 30%) using parallelStream
 		agentSet.parallelStream().forEach(agent -> {
-			double variabilityFactor = Utilities.fromDistribution(1.00, 0.30, null); // Variability (+/- 30%)
+			double variabilityFactor = 1.00 + agent.getRandom().nextGaussian() * 0.30; // Variability (+/- 30%)
 			double kmToWalk = RouteChoicePars.avgTripDistance * variabilityFactor;
 
 			// Ensure kmToWalk is within the defined boundaries
@@ -145,13 +145,14 @@ public class AgentReleaseManager {
 			return homeAgents;
 
 		List<Agent> agents = new ArrayList<>(homeAgents);
+		agents.sort(Comparator.comparingInt(agent -> agent.agentID));
 		// Sort agents by kmWalked in ascending order (less walked first) using parallel
 		// sort
 		agents.parallelStream().sorted(Comparator.comparingDouble(Agent::getTotalMetersWalked))
 				.collect(Collectors.toList());
 
-		Set<Agent> selectedAgents = agents.parallelStream().limit(nrAgents) // Select only the first 'nrAgents' after
-																			// sorting
+		// sequential, so that the draws, and the selection, are reproducible from the job's seed
+		Set<Agent> selectedAgents = agents.stream().limit(nrAgents) // Select only the first 'nrAgents' after sorting
 				.map(agent -> {
 					// Weighted selection: lower km-Walked has a higher probability
 					int weightedIndex = (int) (Math.pow(random.nextDouble(), 1.5) * agents.size());
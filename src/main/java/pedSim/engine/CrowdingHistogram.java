@@ -0,0 +1,92 @@
+package pedSim.engine;
+
+import java.util.Arrays;
+
+/**
+ * A live histogram of the number of agents walking on each edge: for each agent count, the number of edges currently
+ * walked by that many agents. Edges with no agents are not counted.
+ *
+ * The histogram is updated every time an edge's agent count changes and is held in a Fenwick (binary indexed) tree, so
+ * that both updates and percentile queries take O(log n) in the highest agent count, instead of sorting the agent
+ * counts of all the edges at every query.
+ */
+public class CrowdingHistogram {
+
+	// edgesWithCount[c] = number of edges walked by c agents; tree is the Fenwick tree over it, 1-based
+	private int[] edgesWithCount = new int[64];
+	private int[] tree = new int[64];
+	private int crowdedEdges;
+
+	/**
+	 * Records the change of the agent count of an edge.
+	 *
+	 * @param previousCount The agent count before the change.
+	 * @param count         The agent count after the change.
+	 */
+	public synchronized void update(int previousCount, int count) {
+		if (previousCount > 0) {
+			add(previousCount, -1);
+			crowdedEdges--;
+		}
+		if (count > 0) {
+			if (count >= tree.length)
+				grow(count);
+			add(count, 1);
+			crowdedEdges++;
+		}
+	}
+
+	private void add(int count, int delta) {
+		edgesWithCount[count] += delta;
+		for (int i = count; i < tree.length; i += i & -i)
+			tree[i] += delta;
+	}
+
+	private void grow(int count) {
+		int length = tree.length;
+		while (length <= count)
+			length *= 2;
+		edgesWithCount = Arrays.copyOf(edgesWithCount, length);
+		tree = new int[length];
+		for (int c = 1; c < length; c++) {
+			tree[c] += edgesWithCount[c];
+			int parent = c + (c & -c);
+			if (parent < length)
+				tree[parent] += tree[c];
+		}
+	}
+
+	/**
+	 * Returns the agent count at the given percentile of the edges walked by at least one agent.
+	 *
+	 * @param percentile The percentile to calculate.
+	 * @return The agent count at the given percentile, or {@code Double.MAX_VALUE} if no edge is walked.
+	 */
+	public synchronized double percentile(int percentile) {
+		if (crowdedEdges == 0)
+			return Double.MAX_VALUE;
+
+		// rank, 1-based, of the edge at the percentile among the edges sorted by agent count
+		int rank = Math.max(1, (int) Math.ceil(percentile / 100.0 * crowdedEdges));
+
+		// smallest count whose cumulative number of edges reaches the rank
+		int count = 0;
+		for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+			int next = count + step;
+			if (next < tree.length && tree[next] < rank) {
+				count = next;
+				rank -= tree[next];
+			}
+		}
+		return count + 1;
+	}
+
+	/**
+	 * Empties the histogram, when the agent counts of all the edges are reset.
+	 */
+	public synchronized void clear() {
+		Arrays.fill(edgesWithCount, 0);
+		Arrays.fill(tree, 0);
+		crowdedEdges = 0;
+	}
+}
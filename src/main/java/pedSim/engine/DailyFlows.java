@@ -0,0 +1,152 @@
+package pedSim.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.parameters.TimePars;
+import pedSim.utilities.RouteLog;
+import pedSim.utilities.StringEnum.TimeOfDay;
+import pedSim.utilities.StringEnum.Vulnerable;
+import sim.graph.EdgeGraph;
+
+/**
+ * The flows recorded in one simulated day: edge volumes, in primitive arrays
+ * indexed by edgeID and agent group (vulnerability, whether the agent rerouted,
+ * time of day) or by edgeID and time bin of the day (see
+ * {@code TimePars.volumeBinMinutes}), and the walked routes, in a compact
+ * {@link RouteLog}. Agents completing their trips at the same time can record
+ * their flows without locking.
+ */
+public class DailyFlows {
+
+	private static final int TIMES_OF_DAY = TimeOfDay.values().length;
+	private static final int GROUPS = Vulnerable.values().length * 2 * TIMES_OF_DAY;
+
+	// volumes[edgeID * GROUPS + group(vulnerable, rerouted, timeOfDay)]
+	private final AtomicIntegerArray volumes;
+	// binnedVolumes[edgeID * TimePars.volumeTimeBins + timeBin]
+	private final AtomicIntegerArray binnedVolumes;
+	public final RouteLog routeLog = new RouteLog();
+
+	/**
+	 * Creates empty flows for the edges of the street network.
+	 */
+	public DailyFlows() {
+		volumes = new AtomicIntegerArray(PedSimCity.edgeSlots * GROUPS);
+		binnedVolumes = new AtomicIntegerArray(PedSimCity.edgeSlots * TimePars.volumeTimeBins);
+	}
+
+	/**
+	 * Records a walked route.
+	 *
+	 * @param origin                The origin node ID.
+	 * @param destination           The destination node ID.
+	 * @param directedEdgesSequence The walked directed edges.
+	 * @param vulnerable            The vulnerability of the agent.
+	 * @param rerouted              Whether the agent abandoned its planned route
+	 *                              for an alternative one.
+	 * @param timeOfDay             The time of day in which the route is
+	 *                              completed.
+	 * @param timeBin               The time bin in which the route is completed.
+	 */
+	public void record(int origin, int destination, List<DirectedEdge> directedEdgesSequence,
+			Vulnerable vulnerable, boolean rerouted, TimeOfDay timeOfDay, int timeBin) {
+
+		int group = group(vulnerable, rerouted, timeOfDay);
+		for (DirectedEdge directedEdge : directedEdgesSequence) {
+			int edgeID = ((EdgeGraph) directedEdge.getEdge()).getID();
+			volumes.incrementAndGet(edgeID * GROUPS + group);
+			binnedVolumes.incrementAndGet(edgeID * TimePars.volumeTimeBins + timeBin);
+		}
+		routeLog.append(origin, destination, timeOfDay, directedEdgesSequence);
+	}
+
+	/**
+	 * Returns the volume of an edge in the given time of day.
+	 *
+	 * @param edgeID    The edgeID.
+	 * @param timeOfDay The time of day.
+	 * @return The number of agents that walked the edge.
+	 */
+	public int getVolume(int edgeID, TimeOfDay timeOfDay) {
+		int volume = 0;
+		for (Vulnerable vulnerable : Vulnerable.values())
+			volume += getVolume(edgeID, vulnerable, false, timeOfDay) + getVolume(edgeID, vulnerable, true, timeOfDay);
+		return volume;
+	}
+
+	/**
+	 * Returns the volume of an edge generated by a group of agents in the given
+	 * time of day.
+	 *
+	 * @param edgeID     The edgeID.
+	 * @param vulnerable The vulnerability of the agents.
+	 * @param rerouted   Whether the agents rerouted during their trips.
+	 * @param timeOfDay  The time of day.
+	 * @return The number of agents of the group that walked the edge.
+	 */
+	public int getVolume(int edgeID, Vulnerable vulnerable, boolean rerouted, TimeOfDay timeOfDay) {
+		return volumes.get(edgeID * GROUPS + group(vulnerable, rerouted, timeOfDay));
+	}
+
+	private static int group(Vulnerable vulnerable, boolean rerouted, TimeOfDay timeOfDay) {
+		return (vulnerable.ordinal() * 2 + (rerouted ? 1 : 0)) * TIMES_OF_DAY + timeOfDay.ordinal();
+	}
+
+	/**
+	 * Returns the volume of an edge in the given time bin of the day.
+	 *
+	 * @param edgeID  The edgeID.
+	 * @param timeBin The time bin, from 0 to {@code TimePars.volumeTimeBins - 1}.
+	 * @return The number of agents that walked the edge.
+	 */
+	public int getVolume(int edgeID, int timeBin) {
+		return binnedVolumes.get(edgeID * TimePars.volumeTimeBins + timeBin);
+	}
+
+	/**
+	 * Returns the names of the volume columns, in the order of
+	 * {@link #getColumnVolume(int, int)}: the volumes by time of day, by agent
+	 * group and by time bin of the day.
+	 *
+	 * @return The column names.
+	 */
+	public static List<String> getColumnNames() {
+
+		List<String> columns = new ArrayList<>();
+		for (TimeOfDay timeOfDay : TimeOfDay.values())
+			columns.add(timeOfDay.toString());
+		for (Vulnerable vulnerable : Vulnerable.values())
+			for (boolean rerouted : new boolean[] { false, true })
+				for (TimeOfDay timeOfDay : TimeOfDay.values())
+					columns.add(vulnerable + (rerouted ? "_REROUTED_" : "_") + timeOfDay);
+		for (int timeBin = 0; timeBin < TimePars.volumeTimeBins; timeBin++)
+			columns.add(TimePars.getTimeBinLabel(timeBin));
+		return columns;
+	}
+
+	/**
+	 * Returns the value of a volume column for the given edge. The first
+	 * {@code TimeOfDay.values().length} columns are the volumes by time of day.
+	 *
+	 * @param edgeID The edgeID.
+	 * @param column The column, as in {@link #getColumnNames()}.
+	 * @return The volume.
+	 */
+	public int getColumnVolume(int edgeID, int column) {
+
+		if (column < TIMES_OF_DAY)
+			return getVolume(edgeID, TimeOfDay.values()[column]);
+		column -= TIMES_OF_DAY;
+
+		if (column < GROUPS) {
+			Vulnerable vulnerable = Vulnerable.values()[column / (2 * TIMES_OF_DAY)];
+			boolean rerouted = (column / TIMES_OF_DAY) % 2 == 1;
+			return getVolume(edgeID, vulnerable, rerouted, TimeOfDay.values()[column % TIMES_OF_DAY]);
+		}
+		return getVolume(edgeID, column - GROUPS);
+	}
+}
@@ -0,0 +1,76 @@
+package pedSim.engine;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import sim.graph.EdgeGraph;
+
+/**
+ * The number of agents currently walking on each edge, for one simulation job.
+ *
+ * Counts are held in an atomic array indexed by edgeID, owned by the job's {@link PedSimCity} instance, rather than on
+ * the edges of the shared street network: jobs run in parallel do not see each other's agents nor contend on the same
+ * objects. The {@link CrowdingHistogram} of the counts is kept alongside.
+ */
+public class EdgeOccupancy {
+
+	private final AtomicIntegerArray counts;
+	private final CrowdingHistogram histogram = new CrowdingHistogram();
+
+	/**
+	 * Creates the occupancy of the edges of the street network, with no agents on them.
+	 */
+	public EdgeOccupancy() {
+		counts = new AtomicIntegerArray(PedSimCity.edgeSlots);
+	}
+
+	/**
+	 * Records an agent entering the given edge.
+	 *
+	 * @param edge The edge.
+	 */
+	public void enter(EdgeGraph edge) {
+		int count = counts.incrementAndGet(edge.getID());
+		histogram.update(count - 1, count);
+	}
+
+	/**
+	 * Records an agent leaving the given edge. Agents that entered the edge before the last {@link #reset()} are
+	 * ignored.
+	 *
+	 * @param edge The edge.
+	 */
+	public void leave(EdgeGraph edge) {
+		int previousCount = counts.getAndUpdate(edge.getID(), count -> Math.max(count - 1, 0));
+		if (previousCount > 0)
+			histogram.update(previousCount, previousCount - 1);
+	}
+
+	/**
+	 * Returns the number of agents walking on the given edge.
+	 *
+	 * @param edge The edge.
+	 * @return The agent count.
+	 */
+	public int getAgentCount(EdgeGraph edge) {
+		return counts.get(edge.getID());
+	}
+
+	/**
+	 * Returns the agent count at the given percentile of the edges walked by at least one agent.
+	 *
+	 * @param percentile The percentile to calculate.
+	 * @return The agent count at the given percentile, or {@code Double.MAX_VALUE} if no edge is walked.
+	 */
+	public double percentile(int percentile) {
+		return histogram.percentile(percentile);
+	}
+
+	/**
+	 * Resets the agent counts of all the edges.
+	 */
+	public void reset() {
+		for (int edgeID = 0; edgeID < counts.length(); edgeID++)
+			counts.set(edgeID, 0);
+		histogram.clear();
+	}
+}
@@ -5,7 +5,6 @@ import java.util.logging.Logger;
 import pedSim.parameters.Pars;
 import pedSim.parameters.TimePars;
 import pedSim.utilities.LoggerUtil;
-import sim.util.geo.Utilities;
 
 /**
  * The Engine class is responsible for managing the simulation's main logic,
@@ -38,7 +37,9 @@ public class Engine {
 	public void executeJob(int job) throws Exception {
 
 		currentDay = 0;
-		state = new PedSimCity(System.currentTimeMillis(), job);
+		long seed = PedSimCity.ensembleController.jobSeed(job);
+		logger.info("Job nr " + job + ": seed " + seed);
+		state = new PedSimCity(seed, job);
 		state.start();
 		handleNewDay();
 
@@ -59,6 +60,7 @@ public class Engine {
 			}
 		}
 		state.flowHandler.exportFlowsData(currentDay + 1);
+		state.flowHandler.awaitExports();
 		state.finish();
 	}
 
@@ -113,7 +115,7 @@ public class Engine {
 	 * @return The total kilometers for the current day.
 	 */
 	private double calculateKmCurrentDay() {
-		return Pars.metersPerDay * Utilities.fromDistribution(1.0, 0.10, null);
+		return Pars.metersPerDay * (1.0 + state.random.nextGaussian() * 0.10);
 	}
 
 }
@@ -0,0 +1,172 @@
+package pedSim.engine;
+
+import java.util.Arrays;
+
+import pedSim.parameters.Pars;
+import pedSim.utilities.StringEnum.TimeOfDay;
+
+/**
+ * The summary of the edge volumes of all the simulated days of all the jobs, updated as each day is completed so that
+ * the daily volumes do not need to be stored or reloaded.
+ *
+ * Every completed day is one sample of the daily volume of each edge. For every edge and volume column (see
+ * {@link DailyFlows#getColumnNames()}) the running mean and variance are kept with Welford's algorithm; for the volumes
+ * by time of day, the quantiles in {@code Pars.ensembleQuantiles} are estimated with the P-square algorithm (Jain and
+ * Chlamtac, 1985), which keeps five markers per quantile instead of the samples.
+ */
+public class EnsembleAggregator {
+
+	private static final int MARKERS = 5;
+	private static final int TIMES_OF_DAY = TimeOfDay.values().length;
+
+	private final int columns;
+	private int samples;
+	// mean[edgeID * columns + column], and the sum of squared differences from it
+	private final double[] mean;
+	private final double[] m2;
+	// P-square markers: heights and positions[((edgeID * TIMES_OF_DAY + timeOfDay) * quantiles + quantile) * MARKERS
+	// + marker]
+	private final double[] heights;
+	private final int[] positions;
+
+	/**
+	 * Creates an empty summary of the volumes of the edges of the street network.
+	 */
+	public EnsembleAggregator() {
+		int edgeSlots = PedSimCity.edgeSlots;
+		columns = DailyFlows.getColumnNames().size();
+		mean = new double[edgeSlots * columns];
+		m2 = new double[edgeSlots * columns];
+		heights = new double[edgeSlots * TIMES_OF_DAY * Pars.ensembleQuantiles.length * MARKERS];
+		positions = new int[heights.length];
+	}
+
+	/**
+	 * Adds the volumes of a completed day to the summary.
+	 *
+	 * @param flows The flows of the day.
+	 */
+	public synchronized void add(DailyFlows flows) {
+
+		samples++;
+		for (int edgeID : PedSimCity.edgesMap.keySet()) {
+			for (int column = 0; column < columns; column++) {
+				int cell = edgeID * columns + column;
+				double volume = flows.getColumnVolume(edgeID, column);
+				double delta = volume - mean[cell];
+				mean[cell] += delta / samples;
+				m2[cell] += delta * (volume - mean[cell]);
+			}
+			for (int timeOfDay = 0; timeOfDay < TIMES_OF_DAY; timeOfDay++) {
+				int volume = flows.getVolume(edgeID, TimeOfDay.values()[timeOfDay]);
+				for (int quantile = 0; quantile < Pars.ensembleQuantiles.length; quantile++)
+					addToQuantile(markersOffset(edgeID, timeOfDay, quantile), Pars.ensembleQuantiles[quantile], volume);
+			}
+		}
+	}
+
+	private static int markersOffset(int edgeID, int timeOfDay, int quantile) {
+		return ((edgeID * TIMES_OF_DAY + timeOfDay) * Pars.ensembleQuantiles.length + quantile) * MARKERS;
+	}
+
+	/**
+	 * Updates the P-square markers of a quantile with a new sample; {@code samples} already counts it.
+	 */
+	private void addToQuantile(int offset, double p, double value) {
+
+		// the first samples are kept, sorted, as the markers' initial heights
+		if (samples <= MARKERS) {
+			heights[offset + samples - 1] = value;
+			Arrays.sort(heights, offset, offset + samples);
+			positions[offset + samples - 1] = samples;
+			return;
+		}
+
+		int cell;
+		if (value < heights[offset]) {
+			heights[offset] = value;
+			cell = 0;
+		} else if (value >= heights[offset + MARKERS - 1]) {
+			heights[offset + MARKERS - 1] = value;
+			cell = MARKERS - 2;
+		} else {
+			cell = 0;
+			while (value >= heights[offset + cell + 1])
+				cell++;
+		}
+		for (int marker = cell + 1; marker < MARKERS; marker++)
+			positions[offset + marker]++;
+
+		double[] increments = { 0, p / 2, p, (1 + p) / 2, 1 };
+		for (int marker = 1; marker < MARKERS - 1; marker++) {
+			int i = offset + marker;
+			double desired = 1 + (samples - 1) * increments[marker];
+			double d = desired - positions[i];
+			if ((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+				int step = d > 0 ? 1 : -1;
+				double parabolic = heights[i] + (double) step / (positions[i + 1] - positions[i - 1])
+						* ((positions[i] - positions[i - 1] + step) * (heights[i + 1] - heights[i])
+								/ (positions[i + 1] - positions[i])
+								+ (positions[i + 1] - positions[i] - step) * (heights[i] - heights[i - 1])
+										/ (positions[i] - positions[i - 1]));
+				if (heights[i - 1] < parabolic && parabolic < heights[i + 1])
+					heights[i] = parabolic;
+				else
+					heights[i] += step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+				positions[i] += step;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of days added to the summary.
+	 *
+	 * @return The number of samples.
+	 */
+	public synchronized int getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Returns the mean daily volume of an edge.
+	 *
+	 * @param edgeID The edgeID.
+	 * @param column The volume column, as in {@link DailyFlows#getColumnNames()}.
+	 * @return The mean volume, 0 if no day has been added.
+	 */
+	public synchronized double getMean(int edgeID, int column) {
+		return mean[edgeID * columns + column];
+	}
+
+	/**
+	 * Returns the sample variance of the daily volume of an edge.
+	 *
+	 * @param edgeID The edgeID.
+	 * @param column The volume column, as in {@link DailyFlows#getColumnNames()}.
+	 * @return The variance, 0 if fewer than two days have been added.
+	 */
+	public synchronized double getVariance(int edgeID, int column) {
+		return samples < 2 ? 0.0 : m2[edgeID * columns + column] / (samples - 1);
+	}
+
+	/**
+	 * Returns the estimated quantile of the daily volume of an edge in the given time of day.
+	 *
+	 * @param edgeID    The edgeID.
+	 * @param timeOfDay The time of day.
+	 * @param quantile  The index of the quantile in {@code Pars.ensembleQuantiles}.
+	 * @return The estimated quantile, 0 if no day has been added.
+	 */
+	public synchronized double getQuantile(int edgeID, TimeOfDay timeOfDay, int quantile) {
+
+		int offset = markersOffset(edgeID, timeOfDay.ordinal(), quantile);
+		if (samples == 0)
+			return 0.0;
+		if (samples <= MARKERS) {
+			// nearest rank among the samples kept so far
+			int rank = (int) Math.round(Pars.ensembleQuantiles[quantile] * (samples - 1));
+			return heights[offset + rank];
+		}
+		return heights[offset + MARKERS / 2];
+	}
+}
@@ -0,0 +1,176 @@
+package pedSim.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
+
+import pedSim.parameters.Pars;
+import pedSim.utilities.LoggerUtil;
+import pedSim.utilities.StringEnum.TimeOfDay;
+
+/**
+ * Decides how many jobs of the ensemble are run. Jobs are handed out, up to {@code Pars.jobs}, by {@link #nextJob()};
+ * once at least {@code Pars.minConvergenceJobs} jobs are completed, no new job is launched if the ensemble mean of the
+ * daily edge volumes has converged.
+ *
+ * Each completed job is one sample: the mean daily volume (all the times of day) of each edge over the days of the
+ * job. The ensemble mean of an edge has converged when the half-width of its confidence interval,
+ * {@code Pars.convergenceZ} standard errors, is within {@code Pars.convergenceTolerance} of the mean; the ensemble
+ * has converged when at least {@code Pars.convergenceFraction} of the edges with a mean volume of at least
+ * {@code Pars.convergenceMinVolume} have. Jobs already running when the ensemble converges are completed. Early
+ * stopping is disabled by {@code Pars.stopOnConvergence}; the achieved precision is reported in either case.
+ *
+ * The seed of each job is drawn, in job order, from a generator seeded once per run with {@code Pars.seed}, or from
+ * the clock when it is 0, so that jobs launched together get distinct seeds and a run is reproducible from its seed.
+ */
+public class EnsembleController {
+
+	private static final Logger logger = LoggerUtil.getLogger();
+
+	private final int edgeSlots;
+	// summed daily volumes of the days of the running jobs, by job
+	private final Map<Integer, double[]> runningJobs = new HashMap<>();
+	private final Map<Integer, Integer> runningJobDays = new HashMap<>();
+	// Welford's running mean and sum of squared differences, across the completed jobs, by edgeID
+	private final double[] mean;
+	private final double[] m2;
+	private final SplittableRandom seeds;
+	private final Map<Integer, Long> jobSeeds = new HashMap<>();
+	private int launchedJobs;
+	private int completedJobs;
+	private boolean converged;
+
+	/**
+	 * Creates a controller for the edges of the street network, with no job launched.
+	 */
+	public EnsembleController() {
+		edgeSlots = PedSimCity.edgeSlots;
+		mean = new double[edgeSlots];
+		m2 = new double[edgeSlots];
+		long runSeed = Pars.seed == 0 ? System.nanoTime() : Pars.seed;
+		logger.info("Run seed " + runSeed);
+		seeds = new SplittableRandom(runSeed);
+	}
+
+	/**
+	 * Returns the number of the next job to launch.
+	 *
+	 * @return The job number, or -1 if {@code Pars.jobs} jobs have been launched or the ensemble has converged.
+	 */
+	public synchronized int nextJob() {
+		if (launchedJobs >= Pars.jobs || converged)
+			return -1;
+		runningJobs.put(launchedJobs, new double[edgeSlots]);
+		runningJobDays.put(launchedJobs, 0);
+		jobSeeds.put(launchedJobs, seeds.nextLong());
+		return launchedJobs++;
+	}
+
+	/**
+	 * Returns the seed of a launched job.
+	 *
+	 * @param job The job number.
+	 * @return The seed of the job.
+	 */
+	public synchronized long jobSeed(int job) {
+		return jobSeeds.get(job);
+	}
+
+	/**
+	 * Adds the volumes of a completed day of a running job.
+	 *
+	 * @param job   The job number.
+	 * @param flows The flows of the day.
+	 */
+	public synchronized void addDay(int job, DailyFlows flows) {
+		double[] volumes = runningJobs.get(job);
+		if (volumes == null)
+			return;
+		for (int edgeID : PedSimCity.edgesMap.keySet())
+			for (TimeOfDay timeOfDay : TimeOfDay.values())
+				volumes[edgeID] += flows.getVolume(edgeID, timeOfDay);
+		runningJobDays.merge(job, 1, Integer::sum);
+	}
+
+	/**
+	 * Records the completion of a job, once all its days have been added, and checks whether the ensemble has
+	 * converged.
+	 *
+	 * @param job The job number.
+	 */
+	public synchronized void jobCompleted(int job) {
+
+		double[] volumes = runningJobs.remove(job);
+		Integer days = runningJobDays.remove(job);
+		if (volumes == null || days == 0)
+			return;
+
+		completedJobs++;
+		for (int edgeID = 0; edgeID < edgeSlots; edgeID++) {
+			double volume = volumes[edgeID] / days;
+			double delta = volume - mean[edgeID];
+			mean[edgeID] += delta / completedJobs;
+			m2[edgeID] += delta * (volume - mean[edgeID]);
+		}
+
+		double fraction = convergedFraction();
+		logger.info("Job nr " + job + " completed: " + completedJobs + " jobs, " + String.format("%.1f", fraction * 100)
+				+ "% of the edges within tolerance");
+		if (Pars.stopOnConvergence && completedJobs >= Pars.minConvergenceJobs && fraction >= Pars.convergenceFraction
+				&& !converged) {
+			converged = true;
+			logger.info("Ensemble converged after " + completedJobs + " jobs, no further jobs are launched");
+		}
+	}
+
+	/**
+	 * Returns the fraction of the edges, among those with a mean volume of at least {@code Pars.convergenceMinVolume},
+	 * whose ensemble mean is within tolerance.
+	 *
+	 * @return The fraction, 0 if fewer than two jobs are completed.
+	 */
+	public synchronized double convergedFraction() {
+		if (completedJobs < 2)
+			return 0.0;
+
+		int tracked = 0;
+		int withinTolerance = 0;
+		for (int edgeID : PedSimCity.edgesMap.keySet()) {
+			if (mean[edgeID] < Pars.convergenceMinVolume)
+				continue;
+			tracked++;
+			if (relativeHalfWidth(edgeID) <= Pars.convergenceTolerance)
+				withinTolerance++;
+		}
+		return tracked == 0 ? 1.0 : (double) withinTolerance / tracked;
+	}
+
+	private double relativeHalfWidth(int edgeID) {
+		double standardError = Math.sqrt(m2[edgeID] / (completedJobs - 1) / completedJobs);
+		return Pars.convergenceZ * standardError / mean[edgeID];
+	}
+
+	/**
+	 * Logs the precision achieved by the ensemble: completed jobs, fraction of the edges within tolerance and median
+	 * and 90th percentile of the relative half-widths of the confidence intervals of the edges' mean volumes.
+	 */
+	public synchronized void logPrecision() {
+		if (completedJobs < 2) {
+			logger.info("Ensemble of " + completedJobs + " job(s): precision not available");
+			return;
+		}
+
+		double[] halfWidths = PedSimCity.edgesMap.keySet().stream().filter(
+				edgeID -> mean[edgeID] >= Pars.convergenceMinVolume).mapToDouble(this::relativeHalfWidth).sorted()
+				.toArray();
+		if (halfWidths.length == 0) {
+			logger.info("Ensemble of " + completedJobs + " jobs: no edge reached the minimum volume");
+			return;
+		}
+		logger.info("Ensemble of " + completedJobs + " jobs: " + String.format("%.1f", convergedFraction() * 100)
+				+ "% of the edges within tolerance; relative CI half-width median "
+				+ String.format("%.3f", halfWidths[halfWidths.length / 2]) + ", 90th percentile "
+				+ String.format("%.3f", halfWidths[(int) Math.ceil(0.9 * halfWidths.length) - 1]));
+	}
+}
@@ -1,20 +1,34 @@
 package pedSim.engine;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.logging.Logger;
 
 import org.javatuples.Pair;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.planargraph.DirectedEdge;
 import org.locationtech.jts.planargraph.DirectedEdgeStar;
 
+import pedSim.agents.DistanceProfile;
 import pedSim.cognitiveMap.Barrier;
 import pedSim.cognitiveMap.BarrierIntegration;
 import pedSim.cognitiveMap.CommunityCognitiveMap;
 import pedSim.cognitiveMap.Gateway;
 import pedSim.cognitiveMap.Region;
+import pedSim.dijkstra.AltLandmarks;
+import pedSim.dijkstra.CompactGraph;
+import pedSim.dijkstra.ContractionHierarchy;
+import pedSim.dijkstra.RegionalOverlay;
+import pedSim.parameters.Pars;
+import pedSim.parameters.RouteChoicePars;
+import pedSim.routeChoice.RouteCache;
+import pedSim.routeChoice.RouteStore;
+import pedSim.utilities.LoggerUtil;
+import pedSim.utilities.StringEnum.RoutingAlgorithm;
+import pedSim.utilities.StringEnum.RoutingProfile;
 import sim.field.geo.VectorLayer;
 import sim.graph.Building;
 import sim.graph.EdgeGraph;
@@ -30,11 +44,14 @@ import sim.util.geo.MasonGeometry;
  */
 public class Environment {
 
+	private static final Logger logger = LoggerUtil.getLogger();
+
 	/**
 	 * Prepares the simulation environment by initialising junctions, buildings, barriers, attributes, dual graph, and regions (if barriers are present).
 	 */
 	public static void prepare() {
 
+		prepareMBR();
 		prepareGraph();
 		if (!PedSimCity.buildings.getGeometries().isEmpty())
 			prepareBuildings();
@@ -48,6 +65,30 @@ public class Environment {
 		}
 
 		CommunityCognitiveMap.setCommunityCognitiveMap();
+		prepareCompactGraph();
+		if (RouteChoicePars.useALT)
+			prepareALTLandmarks();
+		prepareContractionHierarchies();
+		if (!PedSimCity.regionsMap.isEmpty())
+			prepareRegionalOverlays();
+		if (RouteChoicePars.persistentRouteStore)
+			prepareRouteStore();
+		PedSimCity.ensembleAggregator = new EnsembleAggregator();
+		PedSimCity.ensembleController = new EnsembleController();
+		FlowHandler.startExports();
+	}
+
+	/**
+	 * Sets up the minimum bounding rectangle (MBR) to encompass the road, building and barrier layers and updates the
+	 * MBR of the road layer accordingly, once for all the jobs.
+	 */
+	static private void prepareMBR() {
+		PedSimCity.MBR = PedSimCity.roads.getMBR();
+		if (!PedSimCity.buildings.getGeometries().isEmpty())
+			PedSimCity.MBR.expandToInclude(PedSimCity.buildings.getMBR());
+		if (!PedSimCity.barriers.getGeometries().isEmpty())
+			PedSimCity.MBR.expandToInclude(PedSimCity.barriers.getMBR());
+		PedSimCity.roads.setMBR(PedSimCity.MBR);
 	}
 
 	/**
@@ -178,6 +219,7 @@ public class Environment {
 			edge.setID(edgeID);
 			PedSimCity.edgesMap.put(edgeID, edge);
 			PedSimCity.edges.add(edge);
+			PedSimCity.edgeSlots = Math.max(PedSimCity.edgeSlots, edgeID + 1);
 		}
 	}
 
@@ -285,6 +327,63 @@ public class Environment {
 		}
 	}
 
+	/**
+	 * Compact Graph: Builds the CSR copy of the primal graph used by the routers.
+	 */
+	private static void prepareCompactGraph() {
+		PedSimCity.compactNetwork = new CompactGraph(PedSimCity.network);
+		DistanceProfile.clear();
+		PedSimCity.routeCache = new RouteCache(PedSimCity.compactNetwork,
+				RouteChoicePars.routeCacheMaxMegabytes * 1024L * 1024L);
+	}
+
+	/**
+	 * Selects the ALT landmarks on the compact graph and computes (or loads from the cache) their distance tables.
+	 */
+	private static void prepareALTLandmarks() {
+		PedSimCity.altLandmarks = AltLandmarks.loadOrCompute(PedSimCity.compactNetwork, RouteChoicePars.nrALTLandmarks);
+	}
+
+	/**
+	 * Builds the contraction hierarchies of the routing profiles that are answered by them.
+	 */
+	private static void prepareContractionHierarchies() {
+
+		PedSimCity.contractionHierarchies.clear();
+		if (RouteChoicePars.dayRoutingAlgorithm == RoutingAlgorithm.CONTRACTION_HIERARCHY)
+			PedSimCity.contractionHierarchies.put(RoutingProfile.DAY,
+					new ContractionHierarchy(PedSimCity.compactNetwork, RoutingProfile.DAY));
+		if (RouteChoicePars.nightRoutingAlgorithm == RoutingAlgorithm.CONTRACTION_HIERARCHY)
+			PedSimCity.contractionHierarchies.put(RoutingProfile.NIGHT_NON_VULNERABLE,
+					new ContractionHierarchy(PedSimCity.compactNetwork, RoutingProfile.NIGHT_NON_VULNERABLE));
+	}
+
+	/**
+	 * Builds the regional overlays of the routing profiles that are answered by them.
+	 */
+	private static void prepareRegionalOverlays() {
+
+		PedSimCity.regionalOverlays.clear();
+		if (RouteChoicePars.dayRoutingAlgorithm == RoutingAlgorithm.REGIONAL_OVERLAY)
+			PedSimCity.regionalOverlays.put(RoutingProfile.DAY,
+					new RegionalOverlay(PedSimCity.compactNetwork, RoutingProfile.DAY));
+		if (RouteChoicePars.nightRoutingAlgorithm == RoutingAlgorithm.REGIONAL_OVERLAY)
+			PedSimCity.regionalOverlays.put(RoutingProfile.NIGHT_NON_VULNERABLE,
+					new RegionalOverlay(PedSimCity.compactNetwork, RoutingProfile.NIGHT_NON_VULNERABLE));
+	}
+
+	/**
+	 * Opens the persistent route store, discarding the stored routes if the input files or the routing parameters have
+	 * changed.
+	 */
+	private static void prepareRouteStore() {
+		try {
+			PedSimCity.routeStore = new RouteStore(Pars.cachePath, Import.inputChecksum);
+		} catch (IOException e) {
+			logger.warning("Opening the route store failed: " + e.getMessage());
+		}
+	}
+
 	/**
 	 * Returns all the buildings enclosed between two nodes.
 	 *
@@ -1,26 +1,38 @@
 package pedSim.engine;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
-import org.apache.commons.lang3.ArrayUtils;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBWriter;
 
+import pedSim.parameters.Pars;
 import pedSim.utilities.LoggerUtil;
-import pedSim.utilities.RouteData;
+import pedSim.utilities.RouteLog;
+import pedSim.utilities.StringEnum.RoutesFormat;
 import pedSim.utilities.StringEnum.TimeOfDay;
+import pedSim.utilities.StringEnum.VolumesFormat;
 import sim.field.geo.VectorLayer;
 import sim.io.geo.ShapeFileExporter;
-import sim.util.geo.CSVUtils;
 import sim.util.geo.MasonGeometry;
 
 /**
@@ -36,15 +48,32 @@ public class Exporter {
 	public String outputCognitiveMapDirectory;
 
 	private static final Logger logger = LoggerUtil.getLogger();
-	private static int nrColumns;
+	private int nrColumns;
 	private static final int FIELD_LIMIT = 254;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int BINARY_MAGIC = 0x31565350; // "PSV1", little-endian
+	private static final int BINARY_HEADER_SIZE = 20;
+	private static final int ROUTES_MAGIC = 0x31525350; // "PSR1", little-endian
 	int job;
-	FlowHandler flowHandler;
+	DailyFlows flows;
 	private String currentDate;
 
-	public Exporter(FlowHandler flowHandler) {
-		this.flowHandler = flowHandler;
-		this.job = flowHandler.job;
+	/**
+	 * Creates an exporter for the flows of one day of a job.
+	 *
+	 * @param flows The flows to export.
+	 * @param job   The job ID for the simulation.
+	 */
+	public Exporter(DailyFlows flows, int job) {
+		this();
+		this.flows = flows;
+		this.job = job;
+	}
+
+	/**
+	 * Creates an exporter for the results of the whole simulation, over all the jobs.
+	 */
+	public Exporter() {
 		outputDirectory = "C:" + File.separator + "Users" + File.separator + userName + File.separator
 				+ "PedSimCityNight" + File.separator + "Output";
 		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
@@ -52,7 +81,9 @@ public class Exporter {
 	}
 
 	/**
-	 * Saves pedestrian volumes data to a CSV file.
+	 * Saves pedestrian volumes data, one row per edge, either to a CSV file (gzip-compressed if
+	 * {@code Pars.compressVolumes}) or to a binary columnar file, depending on {@code Pars.volumesFormat}. Rows are
+	 * streamed straight from the day's flows.
 	 *
 	 * @param day The simulated day from 1 onwards.
 	 * @throws Exception If there is an error while saving the data.
@@ -60,40 +91,142 @@ public class Exporter {
 	public void savePedestrianVolumes(int day) throws Exception {
 
 		outputVolumesDirectory = verifyOutputPath(outputVolumesDirectory, "streetVolumes");
-		outputVolumesDirectory += File.separator + currentDate + "_" + job + "_" + day + ".csv";
-		final FileWriter writerVolumesData = new FileWriter(outputVolumesDirectory);
+		outputVolumesDirectory += File.separator + currentDate + "_" + job + "_" + day;
 
-		Map<Integer, Map<String, Integer>> volumesMap = new HashMap<>(flowHandler.volumesMap);
 		List<String> headers = new ArrayList<>();
 		headers.add("edgeID"); // Directly adding "edgeID" without specifying index
+		headers.addAll(DailyFlows.getColumnNames());
 
-		// Adding scenario names to headers
-		for (TimeOfDay timeOfday : TimeOfDay.values())
-			headers.add(timeOfday.toString());
+		int[] edgeIDs = sortedEdgeIDs();
+		if (Pars.volumesFormat == VolumesFormat.BINARY)
+			writeBinaryVolumes(outputVolumesDirectory + ".vol", headers, edgeIDs);
+		else
+			writeCSVVolumes(outputVolumesDirectory + (Pars.compressVolumes ? ".csv.gz" : ".csv"), headers, edgeIDs);
+		logger.info("Day nr " + day + ": Pedestrian volumes successfully exported.");
+	}
 
-		// Writing headers to CSV
-		CSVUtils.writeLine(writerVolumesData, headers);
+	/**
+	 * Saves the summary of the volumes of all the simulated days of all the jobs to a single CSV file (gzip-compressed
+	 * if {@code Pars.compressVolumes}): for each edge and volume column, mean and standard deviation of the daily
+	 * volume and, for the volumes by time of day, the estimated quantiles in {@code Pars.ensembleQuantiles}.
+	 *
+	 * @param ensemble The aggregated volumes.
+	 * @throws Exception If there is an error while saving the data.
+	 */
+	public void saveEnsembleVolumes(EnsembleAggregator ensemble) throws Exception {
 
-		// Iterating through each edgeID and writing corresponding volumes
-		for (Map.Entry<Integer, Map<String, Integer>> entry : volumesMap.entrySet()) {
-			int edgeID = entry.getKey();
-			Map<String, Integer> edgeVolumes = entry.getValue();
-			List<String> row = new ArrayList<>();
+		outputVolumesDirectory = verifyOutputPath(outputVolumesDirectory, "streetVolumes");
+		String fileName = outputVolumesDirectory + File.separator + currentDate + "_ensemble"
+				+ (Pars.compressVolumes ? ".csv.gz" : ".csv");
 
-			// Adding edgeID as the first column value
-			row.add(Integer.toString(edgeID));
+		List<String> columns = DailyFlows.getColumnNames();
+		List<String> headers = new ArrayList<>();
+		headers.add("edgeID");
+		for (String column : columns) {
+			headers.add(column + "_mean");
+			headers.add(column + "_sd");
+		}
+		for (TimeOfDay timeOfDay : TimeOfDay.values())
+			for (double quantile : Pars.ensembleQuantiles)
+				headers.add(timeOfDay + "_q" + Math.round(quantile * 100));
 
-			// Adding volumes for each scenario
-			for (String columnHeader : headers.subList(1, headers.size())) { // Skip "edgeID" header
-				Integer volume = edgeVolumes.get(columnHeader);
-				row.add(volume != null ? Integer.toString(volume) : "0"); // Handle potential null values
+		try (Writer writer = openCSVWriter(fileName)) {
+			writer.write(String.join(",", headers));
+			writer.write('\n');
+			StringBuilder row = new StringBuilder();
+			for (int edgeID : sortedEdgeIDs()) {
+				row.setLength(0);
+				row.append(edgeID);
+				for (int column = 0; column < columns.size(); column++)
+					row.append(',').append(ensemble.getMean(edgeID, column)).append(',')
+							.append(Math.sqrt(ensemble.getVariance(edgeID, column)));
+				for (TimeOfDay timeOfDay : TimeOfDay.values())
+					for (int quantile = 0; quantile < Pars.ensembleQuantiles.length; quantile++)
+						row.append(',').append(ensemble.getQuantile(edgeID, timeOfDay, quantile));
+				row.append('\n');
+				writer.append(row);
 			}
+		}
+		logger.info("Ensemble volumes of " + ensemble.getSamples() + " days successfully exported.");
+	}
+
+	private static int[] sortedEdgeIDs() {
+		return PedSimCity.edgesMap.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+	}
 
-			CSVUtils.writeLine(writerVolumesData, row);
+	/**
+	 * Opens a buffered UTF-8 writer on a new file, gzip-compressed if {@code Pars.compressVolumes}.
+	 *
+	 * @param fileName The file path.
+	 * @return The writer.
+	 * @throws IOException If the file cannot be created.
+	 */
+	private static Writer openCSVWriter(String fileName) throws IOException {
+		OutputStream stream = new FileOutputStream(fileName);
+		if (Pars.compressVolumes)
+			stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+		return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	/**
+	 * Writes the volumes as CSV, through a buffered and optionally gzip-compressed stream.
+	 *
+	 * @param fileName The file path.
+	 * @param headers  The column names.
+	 * @param edgeIDs  The edgeIDs, one per row.
+	 * @throws IOException If the file cannot be written.
+	 */
+	private void writeCSVVolumes(String fileName, List<String> headers, int[] edgeIDs) throws IOException {
+
+		try (Writer writer = openCSVWriter(fileName)) {
+			writer.write(String.join(",", headers));
+			writer.write('\n');
+			StringBuilder row = new StringBuilder();
+			for (int edgeID : edgeIDs) {
+				row.setLength(0);
+				row.append(edgeID);
+				for (int column = 0; column < headers.size() - 1; column++)
+					row.append(',').append(flows.getColumnVolume(edgeID, column));
+				row.append('\n');
+				writer.append(row);
+			}
+		}
+	}
+
+	/**
+	 * Writes the volumes in a binary columnar file that can be memory-mapped. All the values are little-endian:
+	 * <ul>
+	 * <li>header: magic number "PSV1", version (1), number of rows, number of columns, offset of the data;</li>
+	 * <li>the column names, UTF-8, separated by new lines and padded with zeros up to the offset of the data;</li>
+	 * <li>data: one int32 array per column, edgeIDs first, each as long as the number of rows.</li>
+	 * </ul>
+	 *
+	 * @param fileName The file path.
+	 * @param headers  The column names.
+	 * @param edgeIDs  The edgeIDs, one per row.
+	 * @throws IOException If the file cannot be written.
+	 */
+	private void writeBinaryVolumes(String fileName, List<String> headers, int[] edgeIDs) throws IOException {
+
+		byte[] names = String.join("\n", headers).getBytes(StandardCharsets.UTF_8);
+		int dataOffset = (BINARY_HEADER_SIZE + names.length + 7) & ~7;
+
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, dataOffset)).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(BINARY_MAGIC).putInt(1).putInt(edgeIDs.length).putInt(headers.size()).putInt(dataOffset);
+			buffer.put(names);
+			while (buffer.position() < dataOffset)
+				buffer.put((byte) 0);
+
+			for (int column = -1; column < headers.size() - 1; column++)
+				for (int edgeID : edgeIDs) {
+					if (buffer.remaining() < Integer.BYTES)
+						flush(buffer, channel);
+					buffer.putInt(column == -1 ? edgeID : flows.getColumnVolume(edgeID, column));
+				}
+			flush(buffer, channel);
 		}
-		writerVolumesData.flush();
-		writerVolumesData.close();
-		logger.info("Day nr " + day + ": Pedestrian volumes successfully exported.");
 	}
 
 	/**
@@ -106,15 +239,21 @@ public class Exporter {
 
 		outputRoutesDirectory = verifyOutputPath(outputRoutesDirectory, "routes");
 		outputRoutesDirectory += File.separator + currentDate + "_" + job + "_" + day;
+		if (Pars.routesFormat == RoutesFormat.WKB) {
+			writeWKBRoutes(outputRoutesDirectory + ".routes");
+			return;
+		}
+
 		VectorLayer routes = new VectorLayer();
 		nrColumns = 0;
 
-		for (final RouteData routeData : flowHandler.routesData) {
-			MasonGeometry masonGeometry = new MasonGeometry(routeData.lineGeometry);
-			masonGeometry.addIntegerAttribute("O", routeData.origin);
-			masonGeometry.addIntegerAttribute("D", routeData.destination);
-			masonGeometry.addAttribute("scenario", routeData.scenario);
-			formRouteAttributes(masonGeometry, routeData);
+		RouteLog routeLog = flows.routeLog;
+		for (int route = 0; route < routeLog.size(); route++) {
+			MasonGeometry masonGeometry = new MasonGeometry(routeLog.getLineString(route));
+			masonGeometry.addIntegerAttribute("O", routeLog.getOrigin(route));
+			masonGeometry.addIntegerAttribute("D", routeLog.getDestination(route));
+			masonGeometry.addAttribute("scenario", routeLog.getScenario(route).toString());
+			formRouteAttributes(masonGeometry, routeLog.getEdgeIDs(route));
 			routes.addGeometry(masonGeometry);
 		}
 
@@ -130,6 +269,63 @@ public class Exporter {
 		ShapeFileExporter.write(outputRoutesDirectory, routes);
 	}
 
+	/**
+	 * Writes the routes, in a single streaming pass over the route log, to a binary file. All the values are
+	 * little-endian:
+	 * <ul>
+	 * <li>header: magic number "PSR1", version (1), number of routes;</li>
+	 * <li>one record per route: origin node ID, destination node ID, time of day (one byte, the {@link TimeOfDay}
+	 * ordinal), number of edges, the int32 edgeIDs, length of the geometry and the geometry as WKB.</li>
+	 * </ul>
+	 *
+	 * @param fileName The file path.
+	 * @throws IOException If the file cannot be written.
+	 */
+	private void writeWKBRoutes(String fileName) throws IOException {
+
+		RouteLog routeLog = flows.routeLog;
+		WKBWriter wkbWriter = new WKBWriter(2, ByteOrderValues.LITTLE_ENDIAN);
+
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(ROUTES_MAGIC).putInt(1).putInt(routeLog.size());
+
+			for (int route = 0; route < routeLog.size(); route++) {
+				int[] edgeIDs = routeLog.getEdgeIDs(route);
+				byte[] wkb = wkbWriter.write(routeLog.getLineString(route));
+				int recordSize = 4 * Integer.BYTES + 1 + edgeIDs.length * Integer.BYTES + wkb.length;
+				if (buffer.remaining() < recordSize) {
+					flush(buffer, channel);
+					if (buffer.capacity() < recordSize)
+						buffer = ByteBuffer.allocate(recordSize).order(ByteOrder.LITTLE_ENDIAN);
+				}
+
+				buffer.putInt(routeLog.getOrigin(route)).putInt(routeLog.getDestination(route));
+				buffer.put((byte) routeLog.getScenario(route).ordinal());
+				buffer.putInt(edgeIDs.length);
+				for (int edgeID : edgeIDs)
+					buffer.putInt(edgeID);
+				buffer.putInt(wkb.length).put(wkb);
+			}
+			flush(buffer, channel);
+		}
+	}
+
+	/**
+	 * Writes the content of a buffer to a channel and clears the buffer.
+	 *
+	 * @param buffer  The buffer, in write mode.
+	 * @param channel The channel.
+	 * @throws IOException If the channel cannot be written.
+	 */
+	private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
 	/**
 	 * Verifies and creates the specified output directory.
 	 * 
@@ -156,11 +352,11 @@ public class Exporter {
 	/**
 	 * Forms route attributes and handles splitting long edgeIDs strings.
 	 *
-	 * @param masonGeometry The MasonGeometry object representing a route.
-	 * @param routeData     The route data associated with the route.
+	 * @param masonGeometry   The MasonGeometry object representing a route.
+	 * @param edgeIDsSequence The IDs of the edges walked along the route.
 	 */
-	private static void formRouteAttributes(MasonGeometry masonGeometry, RouteData routeData) {
-		String edgeIDs = ArrayUtils.toString(routeData.edgeIDsSequence);
+	private void formRouteAttributes(MasonGeometry masonGeometry, int[] edgeIDsSequence) {
+		String edgeIDs = Arrays.toString(edgeIDsSequence);
 
 		if (edgeIDs.length() <= FIELD_LIMIT)
 			masonGeometry.addAttribute("edgeIDs_0", edgeIDs);
@@ -1,28 +1,42 @@
 package pedSim.engine;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import pedSim.agents.Agent;
-import pedSim.utilities.RouteData;
+import pedSim.parameters.Pars;
+import pedSim.parameters.TimePars;
 import pedSim.utilities.StringEnum.TimeOfDay;
-import sim.graph.EdgeGraph;
-import sim.graph.GraphUtils;
 import sim.routing.Route;
 
 /**
  * The Flow class provides methods for updating various data related to agent
  * movement and route storing in the simulation.
+ *
+ * The flows of the current day are accumulated in a {@link DailyFlows}. At the
+ * end of the day they are handed to a background exporter and replaced with
+ * empty ones, so that the simulation of the next day does not wait for the
+ * files to be written. At most {@code Pars.maxPendingExports} days, over all
+ * the jobs, can be waiting to be written: when exports fall behind, the
+ * simulation waits for them. The exporter also adds the day's volumes to the
+ * {@link EnsembleAggregator} of all the jobs. The exporter is started, with
+ * {@code Pars.exportThreads} threads, once the parameters of the run are set,
+ * and shut down at the end of the run.
  */
 public class FlowHandler {
 
-	public Map<Integer, Map<String, Integer>> volumesMap = new HashMap<Integer, Map<String, Integer>>();
-	public List<RouteData> routesData = new ArrayList<>();
+	private static ExecutorService exportExecutor;
+	private static Semaphore pendingExports;
+
+	private volatile DailyFlows flows;
+	private final List<Future<?>> exports = new ArrayList<>();
 	public int job;
+	private final PedSimCity state;
 
 	/**
 	 * Constructor for the FlowHandler class.
@@ -31,80 +45,110 @@ public class FlowHandler {
 	 * @param state The current simulation state.
 	 */
 	public FlowHandler(int job, PedSimCity state) {
-		initializeEdgeVolumes();
+		this.state = state;
 		this.job = job;
+		initializeEdgeVolumes();
 	}
 
 	/**
-	 * Initialises the edge volumes for the simulation. This method assigns initial
-	 * volume values to edges based on the selected route choice models or empirical
-	 * agent groups. If the simulation is not empirical, it initialises volumes
-	 * based on the route choice models. If the simulation is empirical-based, it
-	 * initialises volumes based on empirical agent groups.
+	 * Starts the background exporter of the run, sized on the current
+	 * {@code Pars.exportThreads} and {@code Pars.maxPendingExports}, shutting
+	 * down the one of a previous run, if any.
 	 */
-	private void initializeEdgeVolumes() {
+	public static void startExports() {
+		shutdownExports();
+		exportExecutor = Executors.newFixedThreadPool(Pars.exportThreads, runnable -> {
+			Thread thread = new Thread(runnable, "pedsimcity-export");
+			thread.setDaemon(true);
+			return thread;
+		});
+		pendingExports = new Semaphore(Pars.maxPendingExports);
+	}
 
-		TimeOfDay[] timeOfDay = TimeOfDay.values();
-		for (int edgeID : PedSimCity.edgesMap.keySet()) {
-			PedSimCity.edgesMap.get(edgeID).resetAgentCount();
-			Map<String, Integer> edgeVolumes = Arrays.stream(timeOfDay)
-					.collect(Collectors.toMap(TimeOfDay::toString, time -> 0)); // No duplicates
-			volumesMap.put(edgeID, edgeVolumes);
-		}
-		routesData.clear();
+	/**
+	 * Shuts down the background exporter at the end of the run, once the
+	 * exports of all the jobs have been awaited.
+	 */
+	public static void shutdownExports() {
+		if (exportExecutor != null)
+			exportExecutor.shutdown();
+		exportExecutor = null;
+	}
+
+	/**
+	 * Initialises the edge volumes for the simulation, replacing the flows with
+	 * empty ones and setting the agent counts to zero.
+	 */
+	private void initializeEdgeVolumes() {
+		flows = new DailyFlows();
+		state.edgeOccupancy.reset();
 	}
 
 	/**
 	 * Updates the edge data on the basis of the passed agent's route and its edges
-	 * sequence.
+	 * sequence. Like the time of day, the time bin is the one in which the route
+	 * is completed.
 	 *
-	 * @param agent The agent for which edge data is updated.
-	 * @param route The route taken by the agent.
-	 * @param night Boolean flag indicating whether it is night or day.
+	 * @param agent    The agent for which edge data is updated.
+	 * @param route    The route taken by the agent.
+	 * @param night    Boolean flag indicating whether it is night or day.
+	 * @param rerouted Whether the agent abandoned its planned route for an
+	 *                 alternative one.
 	 */
-	public synchronized void updateFlowsData(Agent agent, Route route, boolean night) {
+	public void updateFlowsData(Agent agent, Route route, boolean night, boolean rerouted) {
 
-		String attribute = TimeOfDay.DAY.toString();
-		if (night)
-			attribute = TimeOfDay.NIGHT.toString();
-
-		RouteData routeData = createRouteData(agent, route, attribute);
-		for (EdgeGraph edgeGraph : route.edgesSequence) {
-			Map<String, Integer> edgeVolume = volumesMap.get(edgeGraph.getID());
-			edgeVolume.replace(attribute, edgeVolume.get(attribute) + 1);
-			volumesMap.replace(edgeGraph.getID(), edgeVolume);
-		}
-		routeData.edgeIDsSequence = GraphUtils.getEdgeIDs(route.edgesSequence);
-		routesData.add(routeData);
+		TimeOfDay timeOfDay = night ? TimeOfDay.NIGHT : TimeOfDay.DAY;
+		int timeBin = TimePars.getTimeBin(state.schedule.getSteps());
+		flows.record(agent.originNode.getID(), agent.destinationNode.getID(), route.directedEdgesSequence,
+				agent.vulnerable, rerouted, timeOfDay, timeBin);
 	}
 
 	/**
-	 * Exports the flows data for the specified day.
+	 * Exports the flows data for the specified day in the background and starts
+	 * recording the flows of the next day. Waits if too many exports are pending.
 	 *
 	 * @param day The day for which the flow data should be exported.
 	 * @throws Exception if there is an error during the export process.
 	 */
 	public void exportFlowsData(int day) throws Exception {
-		Exporter exporter = new Exporter(this);
-		exporter.savePedestrianVolumes(day);
-		exporter.saveRoutes(day);
+
+		DailyFlows dayFlows = flows;
 		initializeEdgeVolumes();
+
+		pendingExports.acquire();
+		try {
+			exports.add(exportExecutor.submit(() -> {
+				try {
+					PedSimCity.ensembleAggregator.add(dayFlows);
+					PedSimCity.ensembleController.addDay(job, dayFlows);
+					Exporter exporter = new Exporter(dayFlows, job);
+					if (Pars.exportDailyVolumes)
+						exporter.savePedestrianVolumes(day);
+					exporter.saveRoutes(day);
+					return null;
+				} finally {
+					pendingExports.release();
+				}
+			}));
+		} catch (RuntimeException e) {
+			pendingExports.release();
+			throw e;
+		}
 	}
 
 	/**
-	 * Creates and initialises a new RouteData object for the given agent.
+	 * Waits for the exports of this job to be completed.
 	 *
-	 * @param agent     The agent for which route data is created.
-	 * @param route     The route taken by the agent.
-	 * @param attribute The time attribute (day or night) for the route.
-	 * @return A RouteData object containing route information.
+	 * @throws Exception if an export failed.
 	 */
-	private RouteData createRouteData(Agent agent, Route route, String attribute) {
-		RouteData routeData = new RouteData();
-		routeData.origin = agent.originNode.getID();
-		routeData.destination = agent.destinationNode.getID();
-		routeData.lineGeometry = route.getLineString();
-		routeData.scenario = attribute;
-		return routeData;
+	public void awaitExports() throws Exception {
+		try {
+			for (Future<?> export : exports)
+				export.get();
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		} finally {
+			exports.clear();
+		}
 	}
 }
@@ -1,10 +1,14 @@
 package pedSim.engine;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 import pedSim.parameters.Pars;
+import pedSim.parameters.RouteChoicePars;
 import pedSim.utilities.LoggerUtil;
 import sim.field.geo.VectorLayer;
 
@@ -22,6 +26,12 @@ public class Import {
 	private static final Logger logger = LoggerUtil.getLogger();
 	ClassLoader CLASSLOADER = getClass().getClassLoader();
 
+	/**
+	 * Checksum of the imported files, used to validate the persistent route store.
+	 */
+	public static long inputChecksum;
+	private final CRC32 checksum = new CRC32();
+
 	/**
 	 * Imports various data files required for the simulation based on the selected simulation parameters.
 	 *
@@ -35,6 +45,7 @@ public class Import {
 		readBuildings();
 		readBarriers();
 		readGraphs();
+		inputChecksum = checksum.getValue();
 	}
 
 	/**
@@ -54,6 +65,7 @@ public class Import {
 				URL fileUrl = Pars.javaProject ? new File(filePath + ".gpkg").toURI().toURL()
 						: CLASSLOADER.getResource(filePath + ".gpkg");
 				VectorLayer.readGPKG(fileUrl, vectorLayers[i]);
+				updateChecksum(fileUrl);
 
 			}
 
@@ -80,6 +92,7 @@ public class Import {
 				URL fileUrl = Pars.javaProject ? new File(filePath + ".gpkg").toURI().toURL()
 						: CLASSLOADER.getResource(filePath + ".gpkg");
 				VectorLayer.readGPKG(fileUrl, vectorLayers[i]);
+				updateChecksum(fileUrl);
 			}
 
 			PedSimCity.buildings.setID("buildingID");
@@ -100,12 +113,32 @@ public class Import {
 			URL fileUrl = Pars.javaProject ? new File(filePath + ".gpkg").toURI().toURL()
 					: CLASSLOADER.getResource(filePath + ".gpkg");
 			VectorLayer.readGPKG(fileUrl, PedSimCity.barriers);
+			updateChecksum(fileUrl);
 			logger.info("Barriers successfully imported.");
 		} catch (Exception e) {
 			handleImportError("Importing Barriers Failed", e);
 		}
 	}
 
+	/**
+	 * Updates the checksum of the imported files with the content of the given file, when the persistent route store
+	 * is enabled.
+	 *
+	 * @param fileUrl The URL of the imported file.
+	 * @throws IOException If the file cannot be read.
+	 */
+	private void updateChecksum(URL fileUrl) throws IOException {
+		if (!RouteChoicePars.persistentRouteStore)
+			return;
+
+		byte[] bytes = new byte[1 << 16];
+		try (InputStream stream = fileUrl.openStream()) {
+			int read;
+			while ((read = stream.read(bytes)) != -1)
+				checksum.update(bytes, 0, read);
+		}
+	}
+
 	/**
 	 * Handles errors that occur during the import of a layer. It logs the layer name and the exception that occurred.
 	 *
@@ -1,13 +1,17 @@
 package pedSim.engine;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
 import java.util.concurrent.ConcurrentHashMap;
 
-import org.javatuples.Pair;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.linearref.LengthIndexedLine;
 import org.locationtech.jts.planargraph.DirectedEdge;
@@ -16,7 +20,14 @@ import pedSim.agents.Agent;
 import pedSim.cognitiveMap.Barrier;
 import pedSim.cognitiveMap.Gateway;
 import pedSim.cognitiveMap.Region;
+import pedSim.dijkstra.AltLandmarks;
+import pedSim.dijkstra.CompactGraph;
+import pedSim.dijkstra.ContractionHierarchy;
+import pedSim.dijkstra.RegionalOverlay;
 import pedSim.parameters.Pars;
+import pedSim.routeChoice.RouteCache;
+import pedSim.routeChoice.RouteStore;
+import pedSim.utilities.StringEnum.RoutingProfile;
 import sim.engine.SimState;
 import sim.engine.Stoppable;
 import sim.field.geo.VectorLayer;
@@ -27,6 +38,14 @@ import sim.graph.NodeGraph;
 
 /**
  * The PedSimCity class represents the main simulation environment.
+ *
+ * The static fields hold the city model shared by all the jobs: layers, graphs, maps of the urban elements and the
+ * routing structures are loaded by {@link Import} and prepared once by {@link Environment#prepare()}, and are only read
+ * afterwards; the caches filled during the simulation ({@code indexedEdgeCache}, {@code routeCache}) and the ensemble
+ * summaries are safe for concurrent use. Each instance holds the state of one job (schedule and its random number
+ * generator, agents, edge occupancy and flows), so that jobs can run in parallel without sharing mutable state. The
+ * random number generators of the agents and of the release managers are derived from the job's one (see
+ * {@link #newRandom(long)}), so that a job is reproducible from its seed.
  */
 public class PedSimCity extends SimState {
 	private static final long serialVersionUID = 1L;
@@ -40,6 +59,10 @@ public class PedSimCity extends SimState {
 	final public static Graph network = new Graph();
 	final public static Graph dualNetwork = new Graph();
 	public static Envelope MBR = null;
+	public static CompactGraph compactNetwork;
+	public static AltLandmarks altLandmarks;
+	public static Map<RoutingProfile, ContractionHierarchy> contractionHierarchies = new EnumMap<>(RoutingProfile.class);
+	public static Map<RoutingProfile, RegionalOverlay> regionalOverlays = new EnumMap<>(RoutingProfile.class);
 
 	// dual graph
 	public static VectorLayer intersectionsDual = new VectorLayer();
@@ -52,28 +75,36 @@ public class PedSimCity extends SimState {
 	public static Map<Integer, Gateway> gatewaysMap = new HashMap<>();
 	public static Map<Integer, NodeGraph> nodesMap = new HashMap<>();
 	public static Map<Integer, EdgeGraph> edgesMap = new HashMap<>();
+	// edgeIDs range from 0 to edgeSlots - 1: the length of the arrays indexed by edgeID
+	public static int edgeSlots;
 	public static Map<Integer, NodeGraph> centroidsMap = new HashMap<>();
 
-	public boolean isDark = false;
-	public static final Map<DirectedEdge, LengthIndexedLine> indexedEdgeCache = new HashMap<>();
+	// lines of the directed edges indexed for agent movement, filled by the agents of all the jobs
+	public static final Map<DirectedEdge, LengthIndexedLine> indexedEdgeCache = new ConcurrentHashMap<>();
+	public static Set<EdgeGraph> edges = new HashSet<>();
 
+	// per-job state
+	public boolean isDark = false;
 	public int currentJob;
 	public FlowHandler flowHandler;
+	public EdgeOccupancy edgeOccupancy;
+	private final long streamsSeed;
+	private long nextStream = Long.MIN_VALUE;
 
 	public VectorLayer agents;
 	public Set<Agent> agentsAtHome = ConcurrentHashMap.newKeySet();
 	public Set<Agent> agentsWalking = ConcurrentHashMap.newKeySet();
 	public Set<Agent> agentsList = ConcurrentHashMap.newKeySet();
-	public static Set<EdgeGraph> edges = new HashSet<>();
 
-	// cached route
-	public static Map<Pair<NodeGraph, NodeGraph>, List<DirectedEdge>> routesDay = new ConcurrentHashMap<>();
-	public static Map<Pair<NodeGraph, NodeGraph>, List<DirectedEdge>> routesNonVulnerableNight = new ConcurrentHashMap<>();
-	public static Map<Pair<NodeGraph, NodeGraph>, List<DirectedEdge>> routesVulnerableNight = new ConcurrentHashMap<>();
+	// persistent route store, null when disabled
+	public static RouteStore routeStore;
+
+	// cached routes and alternative routes for night movement, by RouteCacheProfile
+	public static RouteCache routeCache;
 
-	// cached alternative routes for night movement
-	public static Map<Pair<NodeGraph, NodeGraph>, List<DirectedEdge>> altRoutesVulnerable = new ConcurrentHashMap<>();
-	public static Map<Pair<NodeGraph, NodeGraph>, List<DirectedEdge>> altRoutesNonVulnerable = new ConcurrentHashMap<>();
+	// summary of the daily edge volumes of all the jobs
+	public static EnsembleAggregator ensembleAggregator;
+	public static EnsembleController ensembleController;
 
 	/**
 	 * Constructs a new instance of the PedSimCity simulation environment.
@@ -83,36 +114,46 @@ public class PedSimCity extends SimState {
 	 */
 	public PedSimCity(long seed, int job) {
 		super(seed);
+		this.streamsSeed = random.nextLong();
 		this.currentJob = job;
+		this.edgeOccupancy = new EdgeOccupancy();
 		this.flowHandler = new FlowHandler(job, this);
 		this.agents = new VectorLayer(); // create a new vector layer for each job
 	}
 
 	/**
-	 * Initialises the simulation by defining the simulation mode, initialising edge volumes, and preparing the
-	 * simulation environment. It then proceeds to populate the environment with agents and starts the agent movement.
+	 * Returns a random number generator for one of the streams of the job, derived from the job's random number
+	 * generator. Agents use their ID as stream, so their randomness does not depend on the order in which they are
+	 * created, even in parallel.
+	 *
+	 * @param stream The stream number.
+	 * @return The random number generator of the stream.
+	 */
+	public Random newRandom(long stream) {
+		return new Random(new SplittableRandom(streamsSeed + stream * 0x9E3779B97F4A7C15L).nextLong());
+	}
+
+	/**
+	 * Returns a random number generator for a new stream of the job, other than the agents' ones. Streams are
+	 * numbered in order of request, so they must be requested from the job's own thread.
+	 *
+	 * @return The random number generator of the stream.
+	 */
+	public Random newRandom() {
+		return newRandom(nextStream++);
+	}
+
+	/**
+	 * Initialises the simulation of the job: populates the environment, prepared once for all the jobs by
+	 * {@link Environment#prepare()}, with agents and starts the agent movement.
 	 */
 	@Override
 	public void start() {
 		super.start();
-		prepareEnvironment();
 		populateEnvironment();
 		startMovingAgents();
 	}
 
-	/**
-	 * Prepares the environment for the simulation. This method sets up the minimum bounding rectangle (MBR) to
-	 * encompass both the road and building layers and updates the MBR of the road layer accordingly.
-	 */
-	private void prepareEnvironment() {
-		MBR = roads.getMBR();
-		if (!buildings.getGeometries().isEmpty())
-			MBR.expandToInclude(buildings.getMBR());
-		if (!barriers.getGeometries().isEmpty())
-			MBR.expandToInclude(barriers.getMBR());
-		roads.setMBR(MBR);
-	}
-
 	/**
 	 * Populates the simulation environment with agents and other entities based on the selected simulation parameters.
 	 * This method uses the Populate class to generate the agent population.
@@ -129,7 +170,10 @@ public class PedSimCity extends SimState {
 	 * the spatial index for agents.
 	 */
 	private void startMovingAgents() {
-		for (Agent agent : agentsList) {
+		// scheduled by ID, so that the order of the agents is reproducible from the job's seed
+		List<Agent> agentsByID = new ArrayList<>(agentsList);
+		agentsByID.sort(Comparator.comparingInt(agent -> agent.agentID));
+		for (Agent agent : agentsByID) {
 			Stoppable stop = schedule.scheduleRepeating(agent);
 			agent.setStoppable(stop);
 			schedule.scheduleRepeating(agents.scheduleSpatialIndexUpdater(), Integer.MAX_VALUE, 1.0);
@@ -159,13 +203,17 @@ public class PedSimCity extends SimState {
 		importer.importFiles();
 		Environment.prepare();
 
-		for (int job = 0; job < Pars.jobs; job++) {
+		for (int job = ensembleController.nextJob(); job >= 0; job = ensembleController.nextJob()) {
 			System.out.println("Run nr.. " + job);
-			final SimState state = new PedSimCity(System.currentTimeMillis(), job);
-			state.start();
-			while (state.schedule.step(state)) {
-			}
+			new Engine().executeJob(job);
+			ensembleController.jobCompleted(job);
 		}
+		FlowHandler.shutdownExports();
+		ensembleController.logPrecision();
+		new Exporter().saveEnsembleVolumes(ensembleAggregator);
+		routeCache.logStatistics();
+		if (routeStore != null)
+			routeStore.close();
 		System.exit(0);
 	}
 }
\ No newline at end of file
@@ -51,9 +51,8 @@ public class Populate {
 	 */
 	private void addAgent(int agentID) {
 
-		Agent agent = new Agent(this.state);
-		agent.agentID = agentID;
-		agent.vulnerable = assignRandomVulernability();
+		Agent agent = new Agent(this.state, agentID);
+		agent.vulnerable = assignRandomVulernability(agent.getRandom());
 		state.agentsList.add(agent);
 		agent.updateAgentLists(false, true);
 	}
@@ -62,10 +61,11 @@ public class Populate {
 	 * Assigns a random vulnerability status (either vulnerable or non-vulnerable)
 	 * to an agent with a 55% chance of being vulnerable.
 	 *
+	 * @param random The random number generator of the agent.
 	 * @return A randomly assigned vulnerability status.
 	 */
-	public static Vulnerable assignRandomVulernability() {
-		double p = new Random().nextDouble();
+	public static Vulnerable assignRandomVulernability(Random random) {
+		double p = random.nextDouble();
 		return p < 0.55 ? Vulnerable.VULNERABLE : Vulnerable.NON_VULNERABLE;
 	}
 }
@@ -1,8 +1,11 @@
 package pedSim.parameters;
 
+import java.io.File;
 import java.util.HashMap;
 
 import pedSim.utilities.StringEnum.RoadType;
+import pedSim.utilities.StringEnum.RoutesFormat;
+import pedSim.utilities.StringEnum.VolumesFormat;
 
 /**
  * The Parameters class contains global parameters and settings for the PedSimCity simulation. These parameters are used
@@ -19,6 +22,17 @@ public class Pars {
 	public static int numAgents;
 
 	public static int jobs = 1;
+	// seed of the run, from which the seeds of the jobs are drawn; 0 for a seed from the clock
+	public static long seed = 0;
+	// jobs run at the same time; with stopOnConvergence, no further jobs are launched once the ensemble mean of the
+	// daily edge volumes is within convergenceTolerance (relative CI half-width) for convergenceFraction of the edges
+	public static int concurrentJobs = Runtime.getRuntime().availableProcessors();
+	public static boolean stopOnConvergence = false;
+	public static int minConvergenceJobs = 5;
+	public static double convergenceTolerance = 0.05;
+	public static double convergenceFraction = 0.95;
+	public static double convergenceZ = 1.96;
+	public static double convergenceMinVolume = 1.0;
 	public static int durationDays = 7;
 
 	// Euclidean Distance between Origin and Destination
@@ -35,6 +49,22 @@ public class Pars {
 	public static boolean javaProject = false;
 	public static String localPath = "C:/Users/gfilo/OneDrive - The University of Liverpool/Scripts/pedsimcityNight/src/main/resources/";
 
+	// the daily volumes of all the jobs are also summarised in one file, besides the files of each day
+	public static boolean exportDailyVolumes = true;
+	public static double[] ensembleQuantiles = { 0.5, 0.9 };
+	// format of the exported volumes: CSV (optionally gzip-compressed) or binary columnar
+	public static VolumesFormat volumesFormat = VolumesFormat.CSV;
+	public static boolean compressVolumes = false;
+	// format of the exported routes: shapefile or binary edge lists with WKB geometries
+	public static RoutesFormat routesFormat = RoutesFormat.SHAPEFILE;
+
+	// background export of the daily flows: writing threads and days that can wait to be written, over all the jobs
+	public static int exportThreads = 2;
+	public static int maxPendingExports = 4;
+
+	// where preprocessing results (e.g. the ALT landmark tables) are cached between runs
+	public static String cachePath = System.getProperty("java.io.tmpdir") + File.separator + "pedsimcity";
+
 	static String[] primary = { "primary", "primary_link" };
 	static String[] secondary = { "secondary", "secondary_link" };
 	static String[] tertiary = { "tertiary", "tertiary_link", "unclassified" };
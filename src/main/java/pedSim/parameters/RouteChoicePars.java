@@ -1,5 +1,7 @@
 package pedSim.parameters;
 
+import pedSim.utilities.StringEnum.RoutingAlgorithm;
+
 /**
  * The Parameters class contains global parameters and settings for the PedSimCity simulation. These parameters are used
  * to configure various aspects of the simulation, including simulation mode, agent behavior, and data import options.
@@ -22,6 +24,28 @@ public class RouteChoicePars {
 
 	public static double naturalBarriers = 0.15;
 	public static double naturalBarriersSD = 0.10;
+	// lower bounds of the perception-error multipliers (natural barriers / base error), applied with useALT
+	public static double minCostPerceptionError = 0.01;
+	public static double minBaseCostPerceptionError = 0.70;
+
+	// Approximate maximum size of the in-memory route cache, least recently used routes are evicted beyond it
+	public static long routeCacheMaxMegabytes = 512;
+
+	// Maximum number of cached distance profiles of the agents' home nodes, least recently used ones are evicted beyond it
+	public static int maxDistanceProfiles = 4096;
+
+	// Persistent route store, reused across jobs and runs on the same input data
+	public static boolean persistentRouteStore = false;
+
+	// ALT goal-directed search (landmark distance tables computed in Environment.prepare())
+	public static boolean useALT = false;
+	public static int nrALTLandmarks = 16;
+
+	// Shortest-path search used for day-time road-distance routes
+	public static RoutingAlgorithm dayRoutingAlgorithm = RoutingAlgorithm.BIDIRECTIONAL_DIJKSTRA;
+	// Shortest-path search used at night; CONTRACTION_HIERARCHY and REGIONAL_OVERLAY only apply to non-vulnerable
+	// agents, REGIONAL_OVERLAY requires barriers and regions
+	public static RoutingAlgorithm nightRoutingAlgorithm = RoutingAlgorithm.DIJKSTRA;
 
 	// Landmark Integration
 	public static double distanceNodeBuilding = 40.0;
@@ -12,6 +12,11 @@ public class TimePars {
 	public static double releaseAgentsEverySteps;
 //		public static static double hoursInSteps = 60 * minuteInSteps;
 
+	// width of the time bins of the exported edge volumes, at least one step
+	public static int volumeBinMinutes = 60;
+	public static double volumeBinDuration; // minutes
+	public static int volumeTimeBins;
+
 	// Calculate the total simulation time in seconds for a certain number of days
 	public static int numberOfDays = 7;
 	public static double simulationDurationInSteps;
@@ -43,6 +48,8 @@ public class TimePars {
 		MINUTE_TO_STEPS = 60 / STEP_DURATION;
 		releaseAgentsEverySteps = releaseAgentsEveryMinutes * MINUTE_TO_STEPS;
 		simulationDurationInSteps = numberOfDays * 24 * 60 * MINUTE_TO_STEPS; // Days to seconds
+		volumeBinDuration = Math.max(volumeBinMinutes, STEP_DURATION / 60);
+		volumeTimeBins = (int) Math.ceil(24 * 60 / volumeBinDuration);
 		getStepsInReleaseTimes();
 
 	}
@@ -95,6 +102,27 @@ public class TimePars {
 				|| currentTimeOnly.isAfter(eveningPeakEnd) || currentTimeOnly.isBefore(nightStart);
 	}
 
+	/**
+	 * Returns the time bin of the day, of {@code volumeBinDuration} minutes, the given step falls in.
+	 *
+	 * @param totalSteps The total number of steps.
+	 * @return The time bin, from 0 to {@code volumeTimeBins - 1}.
+	 */
+	public static int getTimeBin(double totalSteps) {
+		double minuteOfDay = (totalSteps * (STEP_DURATION / 60)) % (24 * 60);
+		return Math.min((int) (minuteOfDay / volumeBinDuration), volumeTimeBins - 1);
+	}
+
+	/**
+	 * Returns the label of a time bin of the day: the time at which it starts, as HH:mm.
+	 *
+	 * @param timeBin The time bin.
+	 * @return The label of the time bin.
+	 */
+	public static String getTimeBinLabel(int timeBin) {
+		return LocalTime.MIDNIGHT.plusMinutes((long) (timeBin * volumeBinDuration)).toString();
+	}
+
 	public static LocalDateTime getTime(double totalSteps) {
 		long totalMinutes = (long) (totalSteps * (TimePars.STEP_DURATION / 60)); // Convert steps to minutes based on
 																					// the stepTimeUnit
@@ -2,15 +2,20 @@ package pedSim.routeChoice;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
-import org.javatuples.Pair;
 import org.locationtech.jts.planargraph.DirectedEdge;
 
 import pedSim.agents.Agent;
+import pedSim.dijkstra.ContractionHierarchy;
 import pedSim.dijkstra.DijkstraRoadDistance;
+import pedSim.dijkstra.DijkstraRoadDistanceBidirectional;
 import pedSim.dijkstra.DijkstraRoadDistanceNight;
+import pedSim.dijkstra.RegionalOverlay;
 import pedSim.engine.PedSimCity;
+import pedSim.parameters.RouteChoicePars;
+import pedSim.utilities.StringEnum.RouteCacheProfile;
+import pedSim.utilities.StringEnum.RoutingAlgorithm;
+import pedSim.utilities.StringEnum.RoutingProfile;
 import sim.graph.NodeGraph;
 import sim.routing.Route;
 
@@ -35,24 +40,78 @@ public class RoadDistancePathFinder {
 	 */
 	public Route roadDistance(NodeGraph originNode, NodeGraph destinationNode, Agent agent) {
 		this.agent = agent;
-		Pair<NodeGraph, NodeGraph> routeKey = Pair.with(originNode, destinationNode);
-
 		boolean isNight = agent.getState().isDark;
-		Map<Pair<NodeGraph, NodeGraph>, List<DirectedEdge>> cache = isNight
-				? (agent.isVulnerable() ? PedSimCity.routesVulnerableNight : PedSimCity.routesNonVulnerableNight)
-				: PedSimCity.routesDay;
-
-		partialSequence = cache.computeIfAbsent(routeKey, key -> {
-			if (isNight)
-				return new DijkstraRoadDistanceNight().dijkstraAlgorithm(originNode, destinationNode, this.agent);
-			else
-				return new DijkstraRoadDistance().dijkstraAlgorithm(originNode, destinationNode, this.agent);
-		});
+		RouteCacheProfile profile = isNight
+				? (agent.isVulnerable() ? RouteCacheProfile.NIGHT_VULNERABLE : RouteCacheProfile.NIGHT_NON_VULNERABLE)
+				: RouteCacheProfile.DAY;
+		// vulnerable agents' night routes depend on the regions they know, so they are only shared by agents knowing the
+		// same regions, and they are not persisted
+		if (profile == RouteCacheProfile.NIGHT_VULNERABLE)
+			partialSequence = PedSimCity.routeCache.getOrCompute(profile, originNode, destinationNode,
+					agent.getCognitiveMap().getKnownRegionsFingerprint(),
+					() -> computeSequence(originNode, destinationNode, isNight));
+		else
+			partialSequence = PedSimCity.routeCache.getOrCompute(profile, originNode, destinationNode, 0,
+					() -> RouteStore.getOrCompute(profile, originNode, destinationNode,
+							() -> computeSequence(originNode, destinationNode, isNight)));
 
 		fillRoute();
 		return route;
 	}
 
+	/**
+	 * Computes the road-distance shortest path with the routing algorithm set for the time of day. At night, the
+	 * contraction hierarchy and the regional overlay only answer the queries of non-vulnerable agents, whose routes do
+	 * not depend on their knowledge of the network.
+	 *
+	 * @param originNode      the origin node;
+	 * @param destinationNode the destination node;
+	 * @param isNight         whether it is dark.
+	 * @return the sequence of directed edges of the path.
+	 */
+	private List<DirectedEdge> computeSequence(NodeGraph originNode, NodeGraph destinationNode, boolean isNight) {
+
+		if (isNight) {
+			List<DirectedEdge> sequence = agent.isVulnerable() ? null
+					: precomputedRoute(RouteChoicePars.nightRoutingAlgorithm, RoutingProfile.NIGHT_NON_VULNERABLE,
+							originNode, destinationNode);
+			return sequence != null ? sequence
+					: new DijkstraRoadDistanceNight().dijkstraAlgorithm(originNode, destinationNode, agent);
+		}
+
+		List<DirectedEdge> sequence = precomputedRoute(RouteChoicePars.dayRoutingAlgorithm, RoutingProfile.DAY,
+				originNode, destinationNode);
+		if (sequence != null)
+			return sequence;
+		if (RouteChoicePars.dayRoutingAlgorithm == RoutingAlgorithm.BIDIRECTIONAL_DIJKSTRA)
+			return new DijkstraRoadDistanceBidirectional().dijkstraAlgorithm(originNode, destinationNode, agent);
+		return new DijkstraRoadDistance().dijkstraAlgorithm(originNode, destinationNode, agent);
+	}
+
+	/**
+	 * Answers the query with the contraction hierarchy or the regional overlay of the given profile, when the routing
+	 * algorithm relies on one of them and it has been built.
+	 *
+	 * @param algorithm       the routing algorithm set;
+	 * @param profile         the routing profile;
+	 * @param originNode      the origin node;
+	 * @param destinationNode the destination node.
+	 * @return the sequence of directed edges of the path, or null if the query has to be answered by a Dijkstra router.
+	 */
+	private List<DirectedEdge> precomputedRoute(RoutingAlgorithm algorithm, RoutingProfile profile, NodeGraph originNode,
+			NodeGraph destinationNode) {
+
+		if (algorithm == RoutingAlgorithm.CONTRACTION_HIERARCHY) {
+			ContractionHierarchy hierarchy = PedSimCity.contractionHierarchies.get(profile);
+			return hierarchy != null ? hierarchy.route(originNode, destinationNode) : null;
+		}
+		if (algorithm == RoutingAlgorithm.REGIONAL_OVERLAY) {
+			RegionalOverlay overlay = PedSimCity.regionalOverlays.get(profile);
+			return overlay != null ? overlay.route(originNode, destinationNode) : null;
+		}
+		return null;
+	}
+
 	private void fillRoute() {
 		route.directedEdgesSequence = partialSequence;
 		route.computeRouteSequences();
@@ -0,0 +1,288 @@
+package pedSim.routeChoice;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.dijkstra.CompactGraph;
+import pedSim.utilities.LoggerUtil;
+import pedSim.utilities.StringEnum.RouteCacheProfile;
+import sim.graph.EdgeGraph;
+import sim.graph.NodeGraph;
+
+/**
+ * A size-bounded cache of the routes computed by the agents, shared by all the agents and jobs.
+ *
+ * Routes are keyed by {@link RouteCacheProfile}, origin/destination node indexes and, for routes that depend on the
+ * agent computing them, a fingerprint of the agent's inputs to the route choice; they are stored as arrays of arc indexes
+ * of the {@link CompactGraph}, rather than lists of directed edges. The cache is split in segments, each one guarded by
+ * its own lock and evicting its least recently used routes once its share of the maximum size is exceeded. Hits, misses
+ * and evictions are counted, to size the cache for a given city and population.
+ */
+public class RouteCache {
+
+	private static final Logger logger = LoggerUtil.getLogger();
+
+	private static final int SEGMENTS = 16;
+
+	// approximate size of an entry, excluding the arc indexes: key, map entry, table slot and array header
+	private static final int ENTRY_OVERHEAD = 96;
+
+	private final CompactGraph graph;
+	private final long maxSegmentBytes;
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * The key of a route: the profile it was computed for, its origin and destination node indexes and the fingerprint
+	 * of the agent's inputs (0 for routes that do not depend on the agent).
+	 */
+	private static final class Key {
+
+		final int profile;
+		final int origin;
+		final int destination;
+		final int fingerprint;
+
+		Key(RouteCacheProfile profile, int origin, int destination, int fingerprint) {
+			this.profile = profile.ordinal();
+			this.origin = origin;
+			this.destination = destination;
+			this.fingerprint = fingerprint;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key))
+				return false;
+			Key key = (Key) other;
+			return profile == key.profile && origin == key.origin && destination == key.destination
+					&& fingerprint == key.fingerprint;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((profile * 31 + origin) * 31 + destination) * 31 + fingerprint;
+		}
+	}
+
+	/**
+	 * A segment of the cache: an access-ordered map, so that its first entry is the least recently used one.
+	 */
+	private static final class Segment extends LinkedHashMap<Key, int[]> {
+		private static final long serialVersionUID = 1L;
+
+		long bytes;
+
+		Segment() {
+			super(16, 0.75f, true);
+		}
+	}
+
+	/**
+	 * Creates an empty route cache for the given graph.
+	 *
+	 * @param graph    The compact graph the routes are computed on.
+	 * @param maxBytes The approximate maximum size of the cache, in bytes.
+	 */
+	public RouteCache(CompactGraph graph, long maxBytes) {
+		this.graph = graph;
+		this.maxSegmentBytes = Math.max(maxBytes / SEGMENTS, 1);
+		for (int i = 0; i < SEGMENTS; i++)
+			segments[i] = new Segment();
+	}
+
+	private Segment segment(Key key) {
+		int hash = key.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Returns the cached route between two nodes.
+	 *
+	 * @param profile         The profile the route was computed for.
+	 * @param originNode      The origin node.
+	 * @param destinationNode The destination node.
+	 * @return A new list with the directed edges of the route, or null if the route is not cached.
+	 */
+	public List<DirectedEdge> get(RouteCacheProfile profile, NodeGraph originNode, NodeGraph destinationNode) {
+		return get(profile, originNode, destinationNode, 0);
+	}
+
+	/**
+	 * Returns the cached route between two nodes, computed by agents with the given fingerprint.
+	 *
+	 * @param profile         The profile the route was computed for.
+	 * @param originNode      The origin node.
+	 * @param destinationNode The destination node.
+	 * @param fingerprint     The fingerprint of the agent's inputs to the route choice.
+	 * @return A new list with the directed edges of the route, or null if the route is not cached.
+	 */
+	public List<DirectedEdge> get(RouteCacheProfile profile, NodeGraph originNode, NodeGraph destinationNode,
+			int fingerprint) {
+
+		Key key = new Key(profile, graph.nodeIndex(originNode), graph.nodeIndex(destinationNode), fingerprint);
+		Segment segment = segment(key);
+		int[] arcs;
+		synchronized (segment) {
+			arcs = segment.get(key);
+		}
+		if (arcs == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+
+		List<DirectedEdge> directedEdgesSequence = new ArrayList<>(arcs.length);
+		for (int arc : arcs)
+			directedEdgesSequence.add(graph.arcDirectedEdge[arc]);
+		return directedEdgesSequence;
+	}
+
+	/**
+	 * Caches the route between two nodes, evicting the least recently used routes of its segment if needed. Routes that
+	 * do not lie on the compact graph are not cached.
+	 *
+	 * @param profile               The profile the route was computed for.
+	 * @param originNode            The origin node.
+	 * @param destinationNode       The destination node.
+	 * @param directedEdgesSequence The sequence of directed edges of the route.
+	 */
+	public void put(RouteCacheProfile profile, NodeGraph originNode, NodeGraph destinationNode,
+			List<DirectedEdge> directedEdgesSequence) {
+		put(profile, originNode, destinationNode, 0, directedEdgesSequence);
+	}
+
+	/**
+	 * Caches the route between two nodes computed by agents with the given fingerprint.
+	 *
+	 * @param profile               The profile the route was computed for.
+	 * @param originNode            The origin node.
+	 * @param destinationNode       The destination node.
+	 * @param fingerprint           The fingerprint of the agent's inputs to the route choice.
+	 * @param directedEdgesSequence The sequence of directed edges of the route.
+	 */
+	public void put(RouteCacheProfile profile, NodeGraph originNode, NodeGraph destinationNode, int fingerprint,
+			List<DirectedEdge> directedEdgesSequence) {
+
+		int origin = graph.nodeIndex(originNode);
+		if (origin == -1)
+			return;
+		int[] arcs = new int[directedEdgesSequence.size()];
+		int node = origin;
+		for (int i = 0; i < arcs.length; i++) {
+			int edge = graph.edgeIndex((EdgeGraph) directedEdgesSequence.get(i).getEdge());
+			int arc = edge == -1 ? -1 : graph.findArc(node, edge);
+			if (arc == -1)
+				return;
+			arcs[i] = arc;
+			node = graph.arcTarget[arc];
+		}
+
+		Key key = new Key(profile, origin, graph.nodeIndex(destinationNode), fingerprint);
+		Segment segment = segment(key);
+		synchronized (segment) {
+			int[] previous = segment.put(key, arcs);
+			if (previous != null)
+				segment.bytes -= entryBytes(previous);
+			segment.bytes += entryBytes(arcs);
+
+			Iterator<Map.Entry<Key, int[]>> entries = segment.entrySet().iterator();
+			while (segment.bytes > maxSegmentBytes && entries.hasNext()) {
+				Map.Entry<Key, int[]> eldest = entries.next();
+				if (eldest.getKey().equals(key))
+					continue;
+				segment.bytes -= entryBytes(eldest.getValue());
+				entries.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Returns the cached route between two nodes, if there is one, or computes it and caches it. The route is computed
+	 * outside the segment's lock, so concurrent requests for the same missing route may compute it more than once.
+	 *
+	 * @param profile         The profile the route is computed for.
+	 * @param originNode      The origin node.
+	 * @param destinationNode The destination node.
+	 * @param fingerprint     The fingerprint of the agent's inputs to the route choice, 0 if the route does not depend
+	 *                        on the agent.
+	 * @param router          Computes the route when it is not cached.
+	 * @return The sequence of directed edges of the route.
+	 */
+	public List<DirectedEdge> getOrCompute(RouteCacheProfile profile, NodeGraph originNode, NodeGraph destinationNode,
+			int fingerprint, Supplier<List<DirectedEdge>> router) {
+
+		List<DirectedEdge> directedEdgesSequence = get(profile, originNode, destinationNode, fingerprint);
+		if (directedEdgesSequence == null) {
+			directedEdgesSequence = router.get();
+			put(profile, originNode, destinationNode, fingerprint, directedEdgesSequence);
+		}
+		return directedEdgesSequence;
+	}
+
+	private static long entryBytes(int[] arcs) {
+		return ENTRY_OVERHEAD + 4L * arcs.length;
+	}
+
+	/**
+	 * Returns the number of cached routes.
+	 *
+	 * @return The number of routes.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments)
+			synchronized (segment) {
+				size += segment.size();
+			}
+		return size;
+	}
+
+	/**
+	 * Returns the approximate size of the cached routes.
+	 *
+	 * @return The size, in bytes.
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for (Segment segment : segments)
+			synchronized (segment) {
+				bytes += segment.bytes;
+			}
+		return bytes;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Logs the size of the cache and its hit, miss and eviction counts.
+	 */
+	public void logStatistics() {
+		long requests = getHits() + getMisses();
+		double hitRate = requests == 0 ? 0.0 : (double) getHits() / requests;
+		logger.info(String.format("Route cache: %d routes, %.1f MB, %d hits, %d misses (hit rate %.3f), %d evictions.",
+				size(), getBytes() / 1048576.0, getHits(), getMisses(), hitRate, getEvictions()));
+	}
+}
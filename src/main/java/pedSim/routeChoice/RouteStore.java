@@ -0,0 +1,256 @@
+package pedSim.routeChoice;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.dijkstra.CompactGraph;
+import pedSim.engine.PedSimCity;
+import pedSim.parameters.Pars;
+import pedSim.parameters.RouteChoicePars;
+import pedSim.utilities.LoggerUtil;
+import pedSim.utilities.StringEnum.RouteCacheProfile;
+import sim.graph.EdgeGraph;
+import sim.graph.NodeGraph;
+
+/**
+ * A persistent store of the routes computed by the agents, kept in a memory-mapped file so that the routes computed in
+ * one job or run are reused by the following ones on the same input data.
+ *
+ * The file starts with a header (magic number, version, key of the input files and routing parameters, end of the
+ * data) followed by
+ * appended records: the {@link RouteCacheProfile} ordinal, the IDs of the origin and destination nodes, the number of
+ * edges and the sequence of edge IDs. Only the position of each record is read when the store is opened; routes are
+ * decoded, walking the edges from the origin node, when requested. A store written for different input files or
+ * routing parameters is discarded. Records are addressed by int positions, so the store stops growing at 2 GiB, the
+ * largest file that can be mapped at once: routes are then still computed, but no longer stored.
+ */
+public class RouteStore {
+
+	private static final Logger logger = LoggerUtil.getLogger();
+
+	private static final int MAGIC = 0x52545331; // "RTS1"
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 24;
+	private static final int END_OFFSET = 16;
+	private static final int INITIAL_CAPACITY = 1 << 20;
+
+	private final FileChannel channel;
+	private volatile MappedByteBuffer buffer;
+	private int end;
+	private boolean full;
+
+	// position of the record of each (origin, destination) pair, by profile
+	private final Map<RouteCacheProfile, Map<Long, Integer>> index = new EnumMap<>(RouteCacheProfile.class);
+
+	/**
+	 * Opens (or creates) the route store of the current city.
+	 *
+	 * @param directory     The directory of the store.
+	 * @param inputChecksum The checksum of the input files the routes are computed on.
+	 * @throws IOException If the store cannot be opened.
+	 */
+	public RouteStore(String directory, long inputChecksum) throws IOException {
+
+		long storeKey = storeKey(inputChecksum);
+		for (RouteCacheProfile profile : RouteCacheProfile.values())
+			index.put(profile, new ConcurrentHashMap<>());
+
+		Files.createDirectories(Paths.get(directory));
+		File file = new File(directory, Pars.cityName + "_routes.bin");
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+
+		long size = channel.size();
+		buffer = map(Math.max(size, INITIAL_CAPACITY));
+		if (size >= HEADER_SIZE && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+				&& buffer.getLong(8) == storeKey) {
+			end = (int) buffer.getLong(END_OFFSET);
+			readIndex();
+			logger.info("Route store opened: " + size() + " stored routes.");
+		} else {
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putLong(8, storeKey);
+			end = HEADER_SIZE;
+			buffer.putLong(END_OFFSET, end);
+		}
+	}
+
+	/**
+	 * Combines the checksum of the input files with the parameters the stored routes depend on: routing algorithms
+	 * and perception errors.
+	 *
+	 * @param inputChecksum The checksum of the input files.
+	 * @return The key of the store.
+	 */
+	private static long storeKey(long inputChecksum) {
+		String parameters = inputChecksum + "|" + RouteChoicePars.dayRoutingAlgorithm + "|"
+				+ RouteChoicePars.nightRoutingAlgorithm + "|" + RouteChoicePars.useALT + "|"
+				+ RouteChoicePars.naturalBarriers + "|" + RouteChoicePars.naturalBarriersSD + "|"
+				+ RouteChoicePars.minCostPerceptionError + "|" + RouteChoicePars.minBaseCostPerceptionError;
+		CRC32 crc = new CRC32();
+		crc.update(parameters.getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+
+	private MappedByteBuffer map(long capacity) throws IOException {
+		MappedByteBuffer mapped = channel.map(MapMode.READ_WRITE, 0, capacity);
+		mapped.order(ByteOrder.LITTLE_ENDIAN);
+		return mapped;
+	}
+
+	/**
+	 * Reads the position of each record.
+	 */
+	private void readIndex() {
+		int position = HEADER_SIZE;
+		while (position < end) {
+			RouteCacheProfile profile = RouteCacheProfile.values()[buffer.get(position)];
+			long key = key(buffer.getInt(position + 1), buffer.getInt(position + 5));
+			index.get(profile).putIfAbsent(key, position);
+			position += 13 + buffer.getInt(position + 9) * 4;
+		}
+	}
+
+	private static long key(int originID, int destinationID) {
+		return ((long) originID << 32) | (destinationID & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the stored route between two nodes.
+	 *
+	 * @param profile         The profile the route was computed for.
+	 * @param originNode      The origin node.
+	 * @param destinationNode The destination node.
+	 * @return The sequence of directed edges of the route, or null if the route is not stored.
+	 */
+	public List<DirectedEdge> get(RouteCacheProfile profile, NodeGraph originNode, NodeGraph destinationNode) {
+
+		Integer position = index.get(profile).get(key(originNode.getID(), destinationNode.getID()));
+		if (position == null)
+			return null;
+
+		MappedByteBuffer records = buffer;
+		CompactGraph graph = PedSimCity.compactNetwork;
+		int count = records.getInt(position + 9);
+		List<DirectedEdge> directedEdgesSequence = new ArrayList<>(count);
+		int node = graph.nodeIndex(originNode);
+		for (int i = 0; i < count; i++) {
+			int edge = graph.edgeIndexByID(records.getInt(position + 13 + i * 4));
+			int arc = edge == -1 ? -1 : graph.findArc(node, edge);
+			if (arc == -1)
+				return null;
+			directedEdgesSequence.add(graph.arcDirectedEdge[arc]);
+			node = graph.arcTarget[arc];
+		}
+		return directedEdgesSequence;
+	}
+
+	/**
+	 * Appends a route to the store, unless a route between the same nodes is already stored.
+	 *
+	 * @param profile               The profile the route was computed for.
+	 * @param originNode            The origin node.
+	 * @param destinationNode       The destination node.
+	 * @param directedEdgesSequence The sequence of directed edges of the route.
+	 */
+	public synchronized void put(RouteCacheProfile profile, NodeGraph originNode, NodeGraph destinationNode,
+			List<DirectedEdge> directedEdgesSequence) {
+
+		long key = key(originNode.getID(), destinationNode.getID());
+		if (full || index.get(profile).containsKey(key))
+			return;
+
+		int recordSize = 13 + directedEdgesSequence.size() * 4;
+		if ((long) end + recordSize > Integer.MAX_VALUE) {
+			full = true;
+			logger.warning("Route store full (" + size() + " stored routes), no further routes are stored.");
+			return;
+		}
+		try {
+			if (end + recordSize > buffer.capacity())
+				buffer = map(Math.min(Integer.MAX_VALUE, Math.max((long) buffer.capacity() * 2, end + recordSize)));
+		} catch (IOException e) {
+			logger.warning("Extending the route store failed: " + e.getMessage());
+			return;
+		}
+
+		int position = end;
+		buffer.put(position, (byte) profile.ordinal());
+		buffer.putInt(position + 1, originNode.getID());
+		buffer.putInt(position + 5, destinationNode.getID());
+		buffer.putInt(position + 9, directedEdgesSequence.size());
+		for (int i = 0; i < directedEdgesSequence.size(); i++)
+			buffer.putInt(position + 13 + i * 4, ((EdgeGraph) directedEdgesSequence.get(i).getEdge()).getID());
+
+		end += recordSize;
+		buffer.putLong(END_OFFSET, end);
+		index.get(profile).put(key, position);
+	}
+
+	/**
+	 * Returns the route between two nodes from the route store, if there is one, or computes it and stores it.
+	 *
+	 * @param profile         The profile the route is computed for.
+	 * @param originNode      The origin node.
+	 * @param destinationNode The destination node.
+	 * @param router          Computes the route when it is not stored.
+	 * @return The sequence of directed edges of the route.
+	 */
+	public static List<DirectedEdge> getOrCompute(RouteCacheProfile profile, NodeGraph originNode,
+			NodeGraph destinationNode, Supplier<List<DirectedEdge>> router) {
+
+		RouteStore store = PedSimCity.routeStore;
+		if (store == null)
+			return router.get();
+
+		List<DirectedEdge> directedEdgesSequence = store.get(profile, originNode, destinationNode);
+		if (directedEdgesSequence == null) {
+			directedEdgesSequence = router.get();
+			store.put(profile, originNode, destinationNode, directedEdgesSequence);
+		}
+		return directedEdgesSequence;
+	}
+
+	/**
+	 * Returns the number of stored routes.
+	 *
+	 * @return The number of routes.
+	 */
+	public int size() {
+		int size = 0;
+		for (Map<Long, Integer> profileIndex : index.values())
+			size += profileIndex.size();
+		return size;
+	}
+
+	/**
+	 * Flushes the stored routes to disk and closes the store.
+	 */
+	public synchronized void close() {
+		try {
+			buffer.force();
+			channel.close();
+		} catch (IOException e) {
+			logger.warning("Closing the route store failed: " + e.getMessage());
+		}
+	}
+}
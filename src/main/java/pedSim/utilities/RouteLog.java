@@ -0,0 +1,164 @@
+package pedSim.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.engine.PedSimCity;
+import pedSim.utilities.StringEnum.TimeOfDay;
+import sim.graph.EdgeGraph;
+import sim.routing.Route;
+
+/**
+ * An append-only, columnar log of the routes walked by the agents: origin and destination node IDs, time of day and
+ * sequence of walked edges, in primitive arrays.
+ *
+ * Each walked edge is coded as its edgeID times two, plus one if it was walked against its direction; the codes of a
+ * route are stored as the zig-zag varint-encoded differences between consecutive codes, which mostly take one or two
+ * bytes. Geometries are not kept: they are rebuilt from {@code PedSimCity.edgesMap} when the routes are exported.
+ */
+public class RouteLog {
+
+	private int size;
+	private int[] origins = new int[1024];
+	private int[] destinations = new int[1024];
+	private byte[] scenarios = new byte[1024];
+	// the edges of route i are in edges[offsets[i], offsets[i + 1])
+	private int[] offsets = new int[1025];
+	private byte[] edges = new byte[16384];
+
+	/**
+	 * Appends a walked route to the log. The route is encoded before entering the log's lock, which is only held to
+	 * copy it.
+	 *
+	 * @param origin                The origin node ID.
+	 * @param destination           The destination node ID.
+	 * @param scenario              The time of day of the route.
+	 * @param directedEdgesSequence The sequence of walked directed edges.
+	 */
+	public void append(int origin, int destination, TimeOfDay scenario, List<DirectedEdge> directedEdgesSequence) {
+
+		byte[] encoded = new byte[directedEdgesSequence.size() * 5];
+		int length = 0;
+		int previousCode = 0;
+		for (DirectedEdge directedEdge : directedEdgesSequence) {
+			EdgeGraph edge = (EdgeGraph) directedEdge.getEdge();
+			int code = edge.getID() * 2 + (directedEdge.getEdgeDirection() ? 0 : 1);
+			int delta = code - previousCode;
+			previousCode = code;
+			for (int zigZag = (delta << 1) ^ (delta >> 31);; zigZag >>>= 7) {
+				if ((zigZag & ~0x7F) == 0) {
+					encoded[length++] = (byte) zigZag;
+					break;
+				}
+				encoded[length++] = (byte) ((zigZag & 0x7F) | 0x80);
+			}
+		}
+
+		synchronized (this) {
+			if (size == origins.length) {
+				origins = Arrays.copyOf(origins, size * 2);
+				destinations = Arrays.copyOf(destinations, size * 2);
+				scenarios = Arrays.copyOf(scenarios, size * 2);
+				offsets = Arrays.copyOf(offsets, size * 2 + 1);
+			}
+			int start = offsets[size];
+			if (start + length > edges.length)
+				edges = Arrays.copyOf(edges, Math.max(edges.length * 2, start + length));
+			System.arraycopy(encoded, 0, edges, start, length);
+			origins[size] = origin;
+			destinations[size] = destination;
+			scenarios[size] = (byte) scenario.ordinal();
+			offsets[size + 1] = start + length;
+			size++;
+		}
+	}
+
+	/**
+	 * Returns the number of routes in the log.
+	 *
+	 * @return The number of routes.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized int getOrigin(int route) {
+		return origins[route];
+	}
+
+	public synchronized int getDestination(int route) {
+		return destinations[route];
+	}
+
+	public synchronized TimeOfDay getScenario(int route) {
+		return TimeOfDay.values()[scenarios[route]];
+	}
+
+	/**
+	 * Decodes the edge codes of a route: edgeID times two, plus one for edges walked against their direction.
+	 *
+	 * @param route The route index.
+	 * @return The edge codes.
+	 */
+	private synchronized int[] getEdgeCodes(int route) {
+		int[] codes = new int[offsets[route + 1] - offsets[route]];
+		int count = 0;
+		int code = 0;
+		int position = offsets[route];
+		while (position < offsets[route + 1]) {
+			int zigZag = 0;
+			for (int shift = 0;; shift += 7) {
+				byte b = edges[position++];
+				zigZag |= (b & 0x7F) << shift;
+				if (b >= 0)
+					break;
+			}
+			code += (zigZag >>> 1) ^ -(zigZag & 1);
+			codes[count++] = code;
+		}
+		return Arrays.copyOf(codes, count);
+	}
+
+	/**
+	 * Returns the IDs of the edges walked along a route.
+	 *
+	 * @param route The route index.
+	 * @return The edgeIDs, in walking order.
+	 */
+	public int[] getEdgeIDs(int route) {
+		int[] edgeIDs = getEdgeCodes(route);
+		for (int i = 0; i < edgeIDs.length; i++)
+			edgeIDs[i] >>= 1;
+		return edgeIDs;
+	}
+
+	/**
+	 * Rebuilds the geometry of a route from the edges of the street network.
+	 *
+	 * @param route The route index.
+	 * @return The LineString of the route.
+	 */
+	public LineString getLineString(int route) {
+		List<DirectedEdge> directedEdgesSequence = new ArrayList<>();
+		for (int code : getEdgeCodes(route)) {
+			DirectedEdge directedEdge = PedSimCity.edgesMap.get(code >> 1).getDirEdge(0);
+			boolean forward = (code & 1) == 0;
+			directedEdgesSequence.add(directedEdge.getEdgeDirection() == forward ? directedEdge : directedEdge.getSym());
+		}
+
+		Route walkedRoute = new Route();
+		walkedRoute.resetRoute(directedEdgesSequence);
+		return walkedRoute.getLineString();
+	}
+
+	/**
+	 * Removes all the routes from the log.
+	 */
+	public synchronized void clear() {
+		size = 0;
+	}
+}
@@ -23,11 +23,36 @@ public class StringEnum {
 		PRIMARY, SECONDARY, TERTIARY, NEIGHBOURHOOD, UNKNOWN
 	}
 
+	public enum EdgeFlag {
+		WITHIN_PARK, ALONG_WATER, PARK_OR_WATER, LIT, COMMUNITY_KNOWN, NON_LIT_NON_KNOWN, PRIMARY, SECONDARY, TERTIARY,
+		NEIGHBOURHOOD, UNKNOWN_ROAD_TYPE
+	}
+
 	public enum Vulnerable {
 		VULNERABLE, NON_VULNERABLE
 	}
 
+	public enum VolumesFormat {
+		CSV, BINARY
+	}
+
+	public enum RoutesFormat {
+		SHAPEFILE, WKB
+	}
+
 	public enum TimeOfDay {
 		DAY, NIGHT
 	}
+
+	public enum RoutingAlgorithm {
+		DIJKSTRA, BIDIRECTIONAL_DIJKSTRA, CONTRACTION_HIERARCHY, REGIONAL_OVERLAY
+	}
+
+	public enum RoutingProfile {
+		DAY, NIGHT_NON_VULNERABLE
+	}
+
+	public enum RouteCacheProfile {
+		DAY, NIGHT_NON_VULNERABLE, NIGHT_VULNERABLE, ALTERNATIVE_NON_VULNERABLE, ALTERNATIVE_VULNERABLE
+	}
 }
@@ -0,0 +1,335 @@
+package pedSim.dijkstra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.locationtech.jts.planargraph.DirectedEdge;
+
+import pedSim.agents.Agent;
+import pedSim.engine.Environment;
+import pedSim.engine.Import;
+import pedSim.engine.PedSimCity;
+import pedSim.parameters.Pars;
+import pedSim.parameters.RouteChoicePars;
+import pedSim.utilities.LoggerUtil;
+import pedSim.utilities.StringEnum.RoutingProfile;
+import pedSim.utilities.StringEnum.Vulnerable;
+import sim.graph.EdgeGraph;
+import sim.graph.NodeGraph;
+import sim.graph.NodesLookup;
+
+/**
+ * A stand-alone benchmark and check of the routers that compares, on the input dataset (by default, TorinoCentre in
+ * {@code src/main/resources}), the number of nodes expanded per origin-destination query when the Dijkstra routers
+ * explore the whole network and when they stop as soon as the destination is settled (point-to-point mode), and when
+ * the point-to-point search is guided by the ALT heuristic. Day routing is also benchmarked with the bidirectional
+ * search, and both profiles with the contraction hierarchies and, when the network is divided into regions, the
+ * regional overlays.
+ *
+ * Every route is checked to be a connected walk from the origin to the destination. The agent routers draw random
+ * perception errors, so their routes are not compared with each other; the contraction hierarchies and the regional
+ * overlays are agent-independent, and their routes must have the same cost, for the profile's edge weights, as the
+ * routes found by a plain Dijkstra search on the compact graph. The process exits with status 1 if any check fails.
+ *
+ * Usage: {@code DijkstraBenchmark [nrQueries] [cityName]}.
+ */
+public class DijkstraBenchmark {
+
+	private static final Logger logger = LoggerUtil.getLogger();
+
+	private static int nrQueries = 500;
+	private static final long SEED = 42;
+	private static final double TOLERANCE = 1e-6;
+	private static int failures = 0;
+
+	/**
+	 * Imports and prepares the environment and runs the benchmark, for day and night routing.
+	 *
+	 * @param args The number of queries and the city name, both optional.
+	 * @throws Exception If the input data cannot be imported.
+	 */
+	public static void main(String[] args) throws Exception {
+
+		if (args.length > 0)
+			nrQueries = Integer.parseInt(args[0]);
+		Pars.cityName = args.length > 1 ? args[1] : "TorinoCentre";
+		RouteChoicePars.useALT = true;
+		Pars.setSimulationParameters();
+		new Import().importFiles();
+		Environment.prepare();
+
+		PedSimCity state = new PedSimCity(SEED, 0);
+		Agent agent = new Agent(state, 0);
+		agent.vulnerable = Vulnerable.VULNERABLE;
+		agent.getCognitiveMap().formCognitiveMap();
+
+		List<NodeGraph[]> queries = sampleQueries();
+		logger.info("Benchmarking " + queries.size() + " origin-destination queries on " + Pars.cityName + " ("
+				+ PedSimCity.compactNetwork.nodeCount + " nodes, " + PedSimCity.compactNetwork.edgeCount + " edges)");
+
+		state.isDark = false;
+		benchmark("Day", queries, agent, false);
+		benchmarkBidirectional(queries, agent);
+		state.isDark = true;
+		benchmark("Night", queries, agent, true);
+		for (RoutingProfile profile : RoutingProfile.values()) {
+			benchmarkContractionHierarchy(profile, queries);
+			if (!PedSimCity.regionsMap.isEmpty())
+				benchmarkRegionalOverlay(profile, queries);
+		}
+
+		if (failures > 0) {
+			logger.severe(failures + " route checks failed");
+			System.exit(1);
+		}
+		logger.info("All route checks passed");
+		System.exit(0);
+	}
+
+	/**
+	 * Records a failed check.
+	 *
+	 * @param condition The checked condition.
+	 * @param message   The description of the failure.
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			failures++;
+			logger.warning(message);
+		}
+	}
+
+	/**
+	 * Checks that a route is a connected walk from the origin to the destination of the query; an empty route is
+	 * accepted only when the destination cannot be reached on the compact graph.
+	 *
+	 * @param label The label of the router.
+	 * @param query The origin-destination pair.
+	 * @param route The sequence of directed edges of the route.
+	 */
+	private static void checkRoute(String label, NodeGraph[] query, List<DirectedEdge> route) {
+
+		String pair = query[0].getID() + " -> " + query[1].getID();
+		if (route == null || route.isEmpty()) {
+			check(referenceCost(RoutingProfile.NIGHT_NON_VULNERABLE, query) == Double.POSITIVE_INFINITY,
+					label + ": no route " + pair);
+			return;
+		}
+
+		NodeGraph node = query[0];
+		for (DirectedEdge directedEdge : route) {
+			if (directedEdge.getFromNode() != node) {
+				check(false, label + ": disconnected route " + pair);
+				return;
+			}
+			node = (NodeGraph) directedEdge.getToNode();
+		}
+		check(node == query[1], label + ": route " + pair + " ends at " + node.getID());
+	}
+
+	/**
+	 * Checks that a route of an agent-independent router has the cost of the shortest route for the given profile.
+	 *
+	 * @param label   The label of the router.
+	 * @param profile The routing profile.
+	 * @param query   The origin-destination pair.
+	 * @param route   The sequence of directed edges of the route.
+	 */
+	private static void checkOptimal(String label, RoutingProfile profile, NodeGraph[] query,
+			List<DirectedEdge> route) {
+
+		checkRoute(label, query, route);
+		double expected = referenceCost(profile, query);
+		if (expected == Double.POSITIVE_INFINITY)
+			return;
+
+		CompactGraph graph = PedSimCity.compactNetwork;
+		double cost = 0.0;
+		for (DirectedEdge directedEdge : route)
+			cost += graph.weight(graph.edgeIndex((EdgeGraph) directedEdge.getEdge()), profile);
+		check(Math.abs(cost - expected) <= TOLERANCE * Math.max(1.0, expected), String.format(
+				"%s: route %d -> %d costs %.6f, shortest %.6f", label, query[0].getID(), query[1].getID(), cost,
+				expected));
+	}
+
+	/**
+	 * Computes, with a plain Dijkstra search on the compact graph, the cost of the shortest route between the nodes
+	 * of a query for the given profile.
+	 *
+	 * @param profile The routing profile.
+	 * @param query   The origin-destination pair.
+	 * @return The cost, infinite if the destination cannot be reached.
+	 */
+	private static double referenceCost(RoutingProfile profile, NodeGraph[] query) {
+
+		CompactGraph graph = PedSimCity.compactNetwork;
+		int destination = graph.nodeIndex(query[1]);
+		double[] costs = new double[graph.nodeCount];
+		Arrays.fill(costs, Double.POSITIVE_INFINITY);
+		IndexedHeap heap = new IndexedHeap(graph.nodeCount);
+		int origin = graph.nodeIndex(query[0]);
+		costs[origin] = 0.0;
+		heap.offer(origin, 0.0);
+
+		while (!heap.isEmpty()) {
+			int current = heap.poll();
+			if (current == destination)
+				break;
+			for (int arc = graph.firstArc[current]; arc < graph.firstArc[current + 1]; arc++) {
+				int target = graph.arcTarget[arc];
+				double cost = costs[current] + graph.weight(graph.arcEdge[arc], profile);
+				if (cost < costs[target]) {
+					costs[target] = cost;
+					heap.offer(target, cost);
+				}
+			}
+		}
+		return costs[destination];
+	}
+
+	/**
+	 * Samples origin-destination pairs whose Euclidean distance is within the trip distance limits.
+	 *
+	 * @return A list of {origin, destination} pairs.
+	 */
+	private static List<NodeGraph[]> sampleQueries() {
+
+		Random random = new Random(SEED);
+		List<NodeGraph> nodes = PedSimCity.network.getNodes();
+		List<NodeGraph[]> queries = new ArrayList<>(nrQueries);
+
+		while (queries.size() < nrQueries) {
+			NodeGraph originNode = nodes.get(random.nextInt(nodes.size()));
+			List<NodeGraph> candidates = NodesLookup.getNodesBetweenDistanceInterval(PedSimCity.network, originNode,
+					RouteChoicePars.minTripDistance, RouteChoicePars.maxTripDistance);
+			if (candidates.isEmpty())
+				continue;
+			queries.add(new NodeGraph[] { originNode, candidates.get(random.nextInt(candidates.size())) });
+		}
+		return queries;
+	}
+
+	/**
+	 * Runs the queries with the full exploration, with the point-to-point mode and with the ALT point-to-point mode and
+	 * logs the average number of expanded nodes and the time per query.
+	 *
+	 * @param label   The label of the benchmark.
+	 * @param queries The origin-destination pairs.
+	 * @param agent   The agent the routes are computed for.
+	 * @param night   Whether the night router should be used.
+	 */
+	private static void benchmark(String label, List<NodeGraph[]> queries, Agent agent, boolean night) {
+
+		long[] expanded = new long[3];
+		long[] nanos = new long[3];
+
+		for (NodeGraph[] query : queries) {
+			for (int mode = 0; mode < 3; mode++) {
+				boolean pointToPoint = mode >= 1;
+				boolean goalDirected = mode == 2;
+				long start = System.nanoTime();
+				List<DirectedEdge> route;
+				if (night) {
+					DijkstraRoadDistanceNight dijkstra = new DijkstraRoadDistanceNight();
+					dijkstra.setPointToPoint(pointToPoint);
+					dijkstra.setGoalDirected(goalDirected);
+					route = dijkstra.dijkstraAlgorithm(query[0], query[1], agent);
+					expanded[mode] += dijkstra.getExpandedNodes();
+				} else {
+					DijkstraRoadDistance dijkstra = new DijkstraRoadDistance();
+					dijkstra.setPointToPoint(pointToPoint);
+					dijkstra.setGoalDirected(goalDirected);
+					route = dijkstra.dijkstraAlgorithm(query[0], query[1], agent);
+					expanded[mode] += dijkstra.getExpandedNodes();
+				}
+				nanos[mode] += System.nanoTime() - start;
+				checkRoute(label + " mode " + mode, query, route);
+			}
+		}
+
+		int size = queries.size();
+		logger.info(String.format(
+				"%s | full search: %.1f expanded nodes, %.3f ms per query | point-to-point: %.1f expanded nodes, %.3f ms per query | ALT: %.1f expanded nodes, %.3f ms per query",
+				label, (double) expanded[0] / size, nanos[0] / 1e6 / size, (double) expanded[1] / size,
+				nanos[1] / 1e6 / size, (double) expanded[2] / size, nanos[2] / 1e6 / size));
+	}
+
+	/**
+	 * Runs the queries with the bidirectional search and logs the average number of expanded nodes and the time per
+	 * query.
+	 *
+	 * @param queries The origin-destination pairs.
+	 * @param agent   The agent the routes are computed for.
+	 */
+	private static void benchmarkBidirectional(List<NodeGraph[]> queries, Agent agent) {
+
+		long expanded = 0;
+		long nanos = 0;
+
+		for (NodeGraph[] query : queries) {
+			long start = System.nanoTime();
+			DijkstraRoadDistanceBidirectional dijkstra = new DijkstraRoadDistanceBidirectional();
+			List<DirectedEdge> route = dijkstra.dijkstraAlgorithm(query[0], query[1], agent);
+			expanded += dijkstra.getExpandedNodes();
+			nanos += System.nanoTime() - start;
+			checkRoute("Day bidirectional", query, route);
+		}
+
+		int size = queries.size();
+		logger.info(String.format("Day | bidirectional: %.1f expanded nodes, %.3f ms per query",
+				(double) expanded / size, nanos / 1e6 / size));
+	}
+
+	/**
+	 * Builds the contraction hierarchy of the given profile, runs the queries on it and logs the preprocessing time,
+	 * the number of shortcuts and the time per query.
+	 *
+	 * @param profile The routing profile.
+	 * @param queries The origin-destination pairs.
+	 */
+	private static void benchmarkContractionHierarchy(RoutingProfile profile, List<NodeGraph[]> queries) {
+
+		long start = System.nanoTime();
+		ContractionHierarchy hierarchy = new ContractionHierarchy(PedSimCity.compactNetwork, profile);
+		long buildNanos = System.nanoTime() - start;
+
+		List<List<DirectedEdge>> routes = new ArrayList<>(queries.size());
+		start = System.nanoTime();
+		for (NodeGraph[] query : queries)
+			routes.add(hierarchy.route(query[0], query[1]));
+		long nanos = System.nanoTime() - start;
+		for (int i = 0; i < queries.size(); i++)
+			checkOptimal(profile + " contraction hierarchy", profile, queries.get(i), routes.get(i));
+
+		logger.info(String.format("%s | contraction hierarchy: built in %.1f s, %d shortcuts, %.3f ms per query",
+				profile, buildNanos / 1e9, hierarchy.getShortcutCount(), nanos / 1e6 / queries.size()));
+	}
+
+	/**
+	 * Builds the regional overlay of the given profile, runs the queries on it and logs the preprocessing time, the
+	 * number of overlay edges and the time per query.
+	 *
+	 * @param profile The routing profile.
+	 * @param queries The origin-destination pairs.
+	 */
+	private static void benchmarkRegionalOverlay(RoutingProfile profile, List<NodeGraph[]> queries) {
+
+		long start = System.nanoTime();
+		RegionalOverlay overlay = new RegionalOverlay(PedSimCity.compactNetwork, profile);
+		long buildNanos = System.nanoTime() - start;
+
+		List<List<DirectedEdge>> routes = new ArrayList<>(queries.size());
+		start = System.nanoTime();
+		for (NodeGraph[] query : queries)
+			routes.add(overlay.route(query[0], query[1]));
+		long nanos = System.nanoTime() - start;
+		for (int i = 0; i < queries.size(); i++)
+			checkOptimal(profile + " regional overlay", profile, queries.get(i), routes.get(i));
+
+		logger.info(String.format("%s | regional overlay: built in %.1f s, %d overlay edges, %.3f ms per query", profile,
+				buildNanos / 1e9, overlay.getOverlayEdgeCount(), nanos / 1e6 / queries.size()));
+	}
+}
@@ -0,0 +1,112 @@
+package pedSim.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import pedSim.parameters.Pars;
+import pedSim.utilities.LoggerUtil;
+import pedSim.utilities.StringEnum.TimeOfDay;
+
+/**
+ * A stand-alone check of the {@link EnsembleAggregator} on a single edge, with no input dataset. Up to five days, the
+ * quantiles must be the nearest-rank quantiles of the sorted samples; with more days, the P-square estimates must lie
+ * within the range of the samples. The means and variances are compared with the ones computed directly from the
+ * samples. The process exits with status 1 if any check fails.
+ *
+ * Usage: {@code EnsembleAggregatorCheck [nrRuns]}.
+ */
+public class EnsembleAggregatorCheck {
+
+	private static final Logger logger = LoggerUtil.getLogger();
+
+	private static int nrRuns = 200;
+	private static final int MAX_DAYS = 50;
+	private static final long SEED = 42;
+	private static final double TOLERANCE = 1e-9;
+	private static int failures = 0;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args The number of runs, optional.
+	 */
+	public static void main(String[] args) {
+
+		if (args.length > 0)
+			nrRuns = Integer.parseInt(args[0]);
+		Pars.ensembleQuantiles = new double[] { 0.1, 0.25, 0.5, 0.75, 0.9 };
+		PedSimCity.edgeSlots = 1;
+		PedSimCity.edgesMap.clear();
+		PedSimCity.edgesMap.put(0, null);
+
+		Random random = new Random(SEED);
+		for (int run = 0; run < nrRuns; run++) {
+			int days = run % MAX_DAYS + 1;
+			int[] samples = new int[days];
+			EnsembleAggregator aggregator = new EnsembleAggregator();
+			for (int day = 0; day < days; day++) {
+				samples[day] = random.nextInt(100);
+				aggregator.add(flowsOf(samples[day]));
+			}
+			checkRun(aggregator, samples);
+		}
+
+		logger.info("EnsembleAggregatorCheck: " + nrRuns + " runs, " + failures + " failures");
+		if (failures > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Returns the flows of a day in which the edge has the given volume in every time of day and column.
+	 */
+	private static DailyFlows flowsOf(int volume) {
+		return new DailyFlows() {
+			@Override
+			public int getVolume(int edgeID, TimeOfDay timeOfDay) {
+				return volume;
+			}
+
+			@Override
+			public int getColumnVolume(int edgeID, int column) {
+				return volume;
+			}
+		};
+	}
+
+	private static void checkRun(EnsembleAggregator aggregator, int[] samples) {
+
+		int days = samples.length;
+		int[] sorted = samples.clone();
+		Arrays.sort(sorted);
+
+		check(aggregator.getSamples() == days, days + " days: " + aggregator.getSamples() + " samples");
+
+		double mean = Arrays.stream(samples).average().orElse(0.0);
+		double variance = days < 2 ? 0.0
+				: Arrays.stream(samples).mapToDouble(sample -> (sample - mean) * (sample - mean)).sum() / (days - 1);
+		check(Math.abs(aggregator.getMean(0, 0) - mean) <= TOLERANCE * Math.max(1.0, mean),
+				days + " days: mean " + aggregator.getMean(0, 0) + ", expected " + mean);
+		check(Math.abs(aggregator.getVariance(0, 0) - variance) <= TOLERANCE * Math.max(1.0, variance),
+				days + " days: variance " + aggregator.getVariance(0, 0) + ", expected " + variance);
+
+		for (TimeOfDay timeOfDay : TimeOfDay.values())
+			for (int quantile = 0; quantile < Pars.ensembleQuantiles.length; quantile++) {
+				double estimate = aggregator.getQuantile(0, timeOfDay, quantile);
+				if (days <= 5) {
+					double expected = sorted[(int) Math.round(Pars.ensembleQuantiles[quantile] * (days - 1))];
+					check(estimate == expected, days + " days, quantile " + Pars.ensembleQuantiles[quantile] + ": "
+							+ estimate + ", expected " + expected + " from " + Arrays.toString(sorted));
+				} else
+					check(sorted[0] <= estimate && estimate <= sorted[days - 1], days + " days, quantile "
+							+ Pars.ensembleQuantiles[quantile] + ": " + estimate + " outside the samples' range");
+			}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			failures++;
+			logger.warning("Check failed: " + message);
+		}
+	}
+}